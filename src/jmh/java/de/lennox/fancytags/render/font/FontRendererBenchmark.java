@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import de.lennox.fancytags.render.gl.Gl;
+import de.lennox.fancytags.render.gl.HeadlessBackend;
+import java.awt.Font;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the per frame work of the font pipeline on realistic label texts, the atlas lives
+ * on a {@link HeadlessBackend} so no gl context is needed
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class FontRendererBenchmark {
+
+  private static final String PLAIN = "xX_Notch_Xx 20 Health";
+  private static final String FORMATTED =
+    "§7[§c§lAdmin§7] §r§bNotch §8| §e§l★ §6Level §a§l142 §7(§d§oVIP§5+§7) §4§n❤ §c20";
+  private static final String UNICODE =
+    "ᴀᴅᴍɪɴ ✦ Ŋøţçĥ ❤ 20 ⚔ Игрок Победитель 名前のプレイヤー ǅemal Ωmega ΣΠΔ ∞ ♛ Śmietana";
+  @Param({"plain", "formatted", "unicode"})
+  public String text;
+  private String label;
+  private char[] chars;
+  private FontRenderer fontRenderer;
+  private GlyphBatch batch;
+  private TextLayout layout;
+
+  @Setup
+  public void setup() {
+    Gl.setBackend(new HeadlessBackend());
+    Font font = new FontFamily("Inter", "Inter-Medium", true, true).fontOf(Font.PLAIN, 72);
+    fontRenderer = new FontRenderer(font, true, true);
+    batch = new GlyphBatch(0x4000);
+    label = "plain".equals(text) ? PLAIN : "formatted".equals(text) ? FORMATTED : UNICODE;
+    chars = label.toCharArray();
+    // Rasterize all glyphs of the label before measuring
+    layout = fontRenderer.layoutOf(label);
+    fontRenderer.prefetch(layout);
+  }
+
+  @Benchmark
+  public float stringWidthCached() {
+    return fontRenderer.stringWidthOf(label);
+  }
+
+  @Benchmark
+  public float stringWidthUncached() {
+    return fontRenderer.stringWidthOf(chars, 0, chars.length);
+  }
+
+  @Benchmark
+  public TextLayout parseLayout() {
+    return TextLayout.of(label, fontRenderer);
+  }
+
+  @Benchmark
+  public float emitGlyphs() {
+    batch.transform(null);
+    float end = fontRenderer.emitString(batch, layout, 0, 0, -1);
+    batch.clear();
+    return end;
+  }
+}
@@ -18,25 +18,231 @@
  */
 package de.lennox.fancytags;
 
+import com.google.gson.JsonObject;
+import de.lennox.fancytags.inject.FancyTagsTransformer;
+import de.lennox.fancytags.render.LabelCulling;
+import de.lennox.fancytags.render.LabelStats;
+import de.lennox.fancytags.render.LabelStatsOverlay;
+import de.lennox.fancytags.render.font.Fonts;
 import java.util.List;
 import net.labymod.api.LabyModAddon;
+import net.labymod.api.events.RenderIngameOverlayEvent;
+import net.labymod.gui.elements.DropDownMenu;
+import net.labymod.settings.elements.BooleanElement;
+import net.labymod.settings.elements.ControlElement;
+import net.labymod.settings.elements.DropDownElement;
+import net.labymod.settings.elements.HeaderElement;
 import net.labymod.settings.elements.SettingsElement;
+import net.labymod.settings.elements.SliderElement;
+import net.labymod.utils.Consumer;
+import net.labymod.utils.Material;
 
 public class FancyTags extends LabyModAddon {
 
+  private PerformanceProfile profile = PerformanceProfile.BALANCED;
+  private int fontSize = Fonts.DEFAULT_SIZE;
+  // The values of the custom profile
+  private int resolution = PerformanceProfile.CUSTOM.resolution;
+  private boolean linearFiltering = PerformanceProfile.CUSTOM.linearFiltering;
+  private boolean background = PerformanceProfile.CUSTOM.background;
+  private boolean seeThrough = PerformanceProfile.CUSTOM.seeThrough;
+  private boolean textShadow = PerformanceProfile.CUSTOM.textShadow;
+  private int backgroundDistance = PerformanceProfile.CUSTOM.backgroundDistance;
+  private int detailDistance = PerformanceProfile.CUSTOM.detailDistance;
+  private int labelDistance = PerformanceProfile.CUSTOM.labelDistance;
+  private int maxLabels = PerformanceProfile.CUSTOM.maxLabels;
+  private boolean debugOverlay;
+
   @Override
   public void onEnable() {
+    getApi().getEventManager().register(
+      (RenderIngameOverlayEvent) partialTicks -> LabelStatsOverlay.render());
     System.out.println("Successfully loaded FancyTags!");
+    if (FancyTagsTransformer.DEBUG) {
+      System.out.println("The transformer handled " + FancyTagsTransformer.transformCalls()
+        + " classes in " + FancyTagsTransformer.transformNanos() / 1000000L + "ms");
+    }
   }
 
   @Override
   public void loadConfig() {
-
+    JsonObject config = getConfig();
+    // Configs from before the profiles only hold the values which are now the custom profile
+    PerformanceProfile fallback = config.has("labelDistance") ? PerformanceProfile.CUSTOM
+      : PerformanceProfile.BALANCED;
+    profile = config.has("profile")
+      ? PerformanceProfile.byName(config.get("profile").getAsString(), fallback) : fallback;
+    fontSize = intOf("fontSize", fontSize);
+    resolution = intOf("resolution", resolution);
+    linearFiltering = booleanOf("linearFiltering", linearFiltering);
+    background = booleanOf("background", background);
+    seeThrough = booleanOf("seeThrough", seeThrough);
+    textShadow = booleanOf("textShadow", textShadow);
+    backgroundDistance = intOf("backgroundDistance", backgroundDistance);
+    // Configs from before the rename store the detail distance as shadowDistance
+    detailDistance = intOf("detailDistance", intOf("shadowDistance", detailDistance));
+    labelDistance = intOf("labelDistance", labelDistance);
+    maxLabels = intOf("maxLabels", maxLabels);
+    debugOverlay = booleanOf("debugOverlay", false);
+    applyProfile();
+    LabelStats.setEnabled(debugOverlay);
   }
 
   @Override
   protected void fillSettings(List<SettingsElement> list) {
+    DropDownMenu<PerformanceProfile> profileMenu = new DropDownMenu<>("Performance profile", 0,
+      0, 0, 0);
+    profileMenu.fill(PerformanceProfile.values());
+    profileMenu.setSelected(profile);
+    DropDownElement<PerformanceProfile> profileElement = new DropDownElement<>(
+      "Performance profile", profileMenu);
+    profileElement.setChangeListener(selected -> {
+      profile = selected;
+      getConfig().addProperty("profile", selected.name());
+      saveConfig();
+      applyProfile();
+    });
+    list.add(profileElement);
+    list.add(new BooleanElement("Debug overlay", new ControlElement.IconData(Material.WATCH),
+      enabled -> {
+        debugOverlay = enabled;
+        getConfig().addProperty("debugOverlay", enabled);
+        saveConfig();
+        // Counting only happens while the overlay is shown
+        LabelStats.setEnabled(enabled);
+      }, debugOverlay));
+    // The font size is a matter of taste, so it is kept across every profile
+    list.add(sliderOf("Font size", Material.PAPER, fontSize, 48, 108,
+      value -> fontSize = value, "fontSize", this::applyFonts));
+    // The values below are only used by the custom profile
+    list.add(new HeaderElement("Custom profile"));
+    // The atlas values rebuild the atlases, the others only change the culling
+    list.add(sliderOf("Atlas resolution", Material.MAP, resolution, 24, 144,
+      value -> resolution = value, "resolution", this::applyFonts));
+    list.add(toggleOf("Smooth filtering", Material.FEATHER, linearFiltering,
+      enabled -> linearFiltering = enabled, "linearFiltering", this::applyFonts));
+    list.add(toggleOf("Background", Material.ITEM_FRAME, background,
+      enabled -> background = enabled, "background", this::applyCulling));
+    list.add(toggleOf("See-through text", Material.REDSTONE, seeThrough,
+      enabled -> seeThrough = enabled, "seeThrough", this::applyCulling));
+    list.add(toggleOf("Text shadow", Material.COAL, textShadow,
+      enabled -> textShadow = enabled, "textShadow", this::applyCulling));
+    list.add(sliderOf("Background distance", Material.PAINTING, backgroundDistance, 8, 256,
+      value -> backgroundDistance = value, "backgroundDistance", this::applyCulling));
+    list.add(sliderOf("Text detail distance", Material.GLASS, detailDistance, 8, 256,
+      value -> detailDistance = value, "detailDistance", this::applyCulling));
+    list.add(sliderOf("Label distance", Material.NAME_TAG, labelDistance, 8, 256,
+      value -> labelDistance = value, "labelDistance", this::applyCulling));
+    list.add(sliderOf("Maximum labels", Material.COMPASS, maxLabels, 1, 500,
+      value -> maxLabels = value, "maxLabels", this::applyCulling));
+  }
+
+  /**
+   * Method to create a slider which stores its value in the config and applies it at once
+   *
+   * @param name     The name of the slider
+   * @param icon     The icon of the slider
+   * @param value    The current value
+   * @param min      The minimum value
+   * @param max      The maximum value
+   * @param setter   The setter of the field which holds the value
+   * @param property The name of the config property
+   * @param apply    Applies the changed value
+   * @return The slider
+   */
+  private SliderElement sliderOf(String name, Material icon, int value, int min, int max,
+    Consumer<Integer> setter, String property, Runnable apply) {
+    return new SliderElement(name, new ControlElement.IconData(icon), value)
+      .setMinValue(min)
+      .setMaxValue(max)
+      .addCallback(newValue -> {
+        setter.accept(newValue);
+        getConfig().addProperty(property, newValue);
+        saveConfig();
+        apply.run();
+      });
+  }
+
+  /**
+   * Method to create a toggle which stores its value in the config and applies it at once
+   *
+   * @param name     The name of the toggle
+   * @param icon     The icon of the toggle
+   * @param value    The current value
+   * @param setter   The setter of the field which holds the value
+   * @param property The name of the config property
+   * @param apply    Applies the changed value
+   * @return The toggle
+   */
+  private BooleanElement toggleOf(String name, Material icon, boolean value,
+    Consumer<Boolean> setter, String property, Runnable apply) {
+    return new BooleanElement(name, new ControlElement.IconData(icon), enabled -> {
+      setter.accept(enabled);
+      getConfig().addProperty(property, enabled);
+      saveConfig();
+      apply.run();
+    }, value);
+  }
+
+  /**
+   * Method to read an int from the config
+   *
+   * @param property The name of the config property
+   * @param fallback The value which is used if the property is not set
+   * @return The value of the property
+   */
+  private int intOf(String property, int fallback) {
+    JsonObject config = getConfig();
+    return config.has(property) ? config.get(property).getAsInt() : fallback;
+  }
+
+  /**
+   * Method to read a boolean from the config
+   *
+   * @param property The name of the config property
+   * @param fallback The value which is used if the property is not set
+   * @return The value of the property
+   */
+  private boolean booleanOf(String property, boolean fallback) {
+    JsonObject config = getConfig();
+    return config.has(property) ? config.get(property).getAsBoolean() : fallback;
+  }
+
+  /**
+   * Method to apply the selected profile, changing the atlas settings releases the old atlases
+   * and the labels switch to the new ones without a restart
+   */
+  private void applyProfile() {
+    applyCulling();
+    applyFonts();
+  }
+
+  /**
+   * Method to apply the label parts and distances of the selected profile, these are cheap to
+   * change and apply at once
+   */
+  private void applyCulling() {
+    if (profile == PerformanceProfile.CUSTOM) {
+      LabelCulling.setParts(background, seeThrough, textShadow);
+      LabelCulling.configure(backgroundDistance, detailDistance, labelDistance,
+        LabelCulling.DEFAULT_BADGE_DISTANCE, maxLabels);
+      return;
+    }
+    LabelCulling.setParts(profile.background, profile.seeThrough, profile.textShadow);
+    LabelCulling.configure(profile.backgroundDistance, profile.detailDistance,
+      profile.labelDistance, LabelCulling.DEFAULT_BADGE_DISTANCE, profile.maxLabels);
+  }
 
+  /**
+   * Method to apply the font size and the atlas settings of the selected profile, the atlases are
+   * only rebuilt once the settings changed and stopped changing, see {@link Fonts#configure}
+   */
+  private void applyFonts() {
+    if (profile == PerformanceProfile.CUSTOM) {
+      Fonts.configure(fontSize, resolution, linearFiltering);
+      return;
+    }
+    Fonts.configure(fontSize, profile.resolution, profile.linearFiltering);
   }
 
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags;
+
+import de.lennox.fancytags.render.LabelCulling;
+import de.lennox.fancytags.render.font.Fonts;
+
+/**
+ * Presets which trade the quality of the labels for speed, the custom profile uses the values of
+ * the settings instead
+ */
+public enum PerformanceProfile {
+
+  LOW("Low", 36, false, false, false, false, 16, 32, 48, 30),
+  BALANCED("Balanced", Fonts.DEFAULT_RESOLUTION, true, true, true, false,
+    LabelCulling.DEFAULT_BACKGROUND_DISTANCE, LabelCulling.DEFAULT_DETAIL_DISTANCE,
+    LabelCulling.DEFAULT_LABEL_DISTANCE, LabelCulling.DEFAULT_MAX_LABELS),
+  HIGH("High", 108, true, true, true, true, 64, 128, 256, 300),
+  CUSTOM("Custom", Fonts.DEFAULT_RESOLUTION, true, true, true, false,
+    LabelCulling.DEFAULT_BACKGROUND_DISTANCE, LabelCulling.DEFAULT_DETAIL_DISTANCE,
+    LabelCulling.DEFAULT_LABEL_DISTANCE, LabelCulling.DEFAULT_MAX_LABELS);
+
+  private final String displayName;
+  final int resolution;
+  final boolean linearFiltering;
+  final boolean background;
+  final boolean seeThrough;
+  final boolean textShadow;
+  final int backgroundDistance;
+  final int detailDistance;
+  final int labelDistance;
+  final int maxLabels;
+
+  /**
+   * Constructs a {@link PerformanceProfile}, the values of the custom profile are the defaults of
+   * the settings
+   *
+   * @param displayName        The name which is shown in the settings
+   * @param resolution         The size which the atlases are rasterized at
+   * @param linearFiltering    Defines if bitmap atlases are sampled with linear filtering
+   * @param background         Defines if labels have a background
+   * @param seeThrough         Defines if the low alpha text which shines through walls is drawn
+   * @param textShadow         Defines if the text has a shadow
+   * @param backgroundDistance The distance from which on labels are drawn without background
+   * @param detailDistance     The distance from which on labels are drawn without the text which
+   *                           shines through walls and without the text shadow
+   * @param labelDistance      The distance from which on labels are not drawn anymore
+   * @param maxLabels          The maximum amount of labels which are drawn per frame
+   */
+  PerformanceProfile(String displayName, int resolution, boolean linearFiltering,
+    boolean background, boolean seeThrough, boolean textShadow, int backgroundDistance,
+    int detailDistance, int labelDistance, int maxLabels) {
+    this.displayName = displayName;
+    this.resolution = resolution;
+    this.linearFiltering = linearFiltering;
+    this.background = background;
+    this.seeThrough = seeThrough;
+    this.textShadow = textShadow;
+    this.backgroundDistance = backgroundDistance;
+    this.detailDistance = detailDistance;
+    this.labelDistance = labelDistance;
+    this.maxLabels = maxLabels;
+  }
+
+  /**
+   * Method to find a profile by the name of its constant, used to read the config
+   *
+   * @param name     The name of the constant
+   * @param fallback The profile which is used if no profile has the name
+   * @return The profile with the name
+   */
+  static PerformanceProfile byName(String name, PerformanceProfile fallback) {
+    for (PerformanceProfile profile : values()) {
+      if (profile.name().equals(name)) {
+        return profile;
+      }
+    }
+    return fallback;
+  }
+
+  @Override
+  public String toString() {
+    return displayName;
+  }
+}
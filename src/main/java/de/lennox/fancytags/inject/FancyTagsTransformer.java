@@ -18,21 +18,27 @@
  */
 package de.lennox.fancytags.inject;
 
-import com.google.common.collect.Lists;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import net.minecraft.launchwrapper.IClassTransformer;
 import net.minecraft.launchwrapper.Launch;
-import org.apache.commons.io.IOUtils;
 import org.spongepowered.asm.launch.MixinBootstrap;
 import org.spongepowered.asm.mixin.MixinEnvironment;
 import org.spongepowered.asm.mixin.Mixins;
@@ -47,10 +53,17 @@ import org.spongepowered.asm.mixin.Mixins;
 public class FancyTagsTransformer implements IClassTransformer {
 
   private static final boolean DEVELOPMENT_ENVIRONMENT = false;
-  private static final List<String> CLASSES_TO_MAP = Lists.newArrayList(
-    "de.lennox.fancytags.inject.mixin.entity.MixinRendererLivingEntity",
-    "de.lennox.fancytags.inject.mixin.labymod.MixinRenderPlayerImpl");
+  // Only mixins are remapped, every other class is rejected by this prefix
+  private static final String MIXIN_PACKAGE = "de.lennox.fancytags.inject.mixin.";
+  private static final String SRG_BUNDLE = "/srg.bundle";
+  // Start the game with -Dfancytags.debug=true to print the preload and transformer statistics
+  public static final boolean DEBUG = Boolean.getBoolean("fancytags.debug");
+  // Classes can be transformed by multiple class loading threads at once
+  private static final LongAdder TRANSFORM_CALLS = new LongAdder();
+  private static final LongAdder TRANSFORM_NANOS = new LongAdder();
   private boolean forge;
+  // The remapped mixin classes by their name, null if classes are not remapped
+  private Map<String, byte[]> remappedClasses;
 
   public FancyTagsTransformer() {
     // Check for forge, this is required because on forge classes have to be transformed
@@ -62,6 +75,9 @@ public class FancyTagsTransformer implements IClassTransformer {
       forge = true;
     }
     System.out.println("Injecting mixins...");
+    // Let the flight recorder api resolve from the runtime, the launch class loader only defines
+    // classes of the class path itself
+    Launch.classLoader.addClassLoaderExclusion("jdk.jfr.");
     // Get the correct class loader
     ClassLoader classLoader = Launch.class.getClassLoader();
     String className = "/de/lennox/fancytags/inject/FancyTagsTransformer.class";
@@ -73,14 +89,7 @@ public class FancyTagsTransformer implements IClassTransformer {
       Method method = classLoader.getClass().getSuperclass().getDeclaredMethod("addURL", URL.class);
       method.setAccessible(true);
       method.invoke(classLoader, path.toURI().toURL());
-      /// Load all classes to the class loader
-      for (String s : classesToLoad()) {
-        try {
-          classLoader.loadClass(s);
-          System.out.println("Loaded " + s + " successfully!");
-        } catch (ClassNotFoundException | NoClassDefFoundError ignored) {
-        }
-      }
+      preload(classLoader);
       System.out.println("Injected " + path.getName() + " to class path.");
     } catch (MalformedURLException | NoSuchMethodException | InvocationTargetException |
              IllegalAccessException e) {
@@ -93,36 +102,138 @@ public class FancyTagsTransformer implements IClassTransformer {
     // Set the environment to client
     MixinEnvironment.getDefaultEnvironment().setSide(MixinEnvironment.Side.CLIENT);
     System.out.println("Injected mixins successfully!");
+    // Only forge needs the remapped classes
+    if (forge && !DEVELOPMENT_ENVIRONMENT) {
+      remappedClasses = readBundle();
+    }
+  }
+
+  /**
+   * Method to read the remapped mixin classes, the bundle starts with an index of the name and the
+   * length of every class which is followed by the bytes of all classes in the same order
+   *
+   * @return The bytes of the remapped classes by their name
+   * @throws IllegalStateException If the bundle is missing
+   */
+  private static Map<String, byte[]> readBundle() {
+    InputStream inputStream = FancyTagsTransformer.class.getResourceAsStream(SRG_BUNDLE);
+    if (inputStream == null) {
+      throw new IllegalStateException("Missing " + SRG_BUNDLE);
+    }
+    try (DataInputStream data = new DataInputStream(new BufferedInputStream(inputStream))) {
+      int count = data.readInt();
+      String[] names = new String[count];
+      int[] lengths = new int[count];
+      for (int i = 0; i < count; i++) {
+        names[i] = data.readUTF();
+        lengths[i] = data.readInt();
+      }
+      Map<String, byte[]> classes = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        byte[] bytes = new byte[lengths[i]];
+        data.readFully(bytes);
+        classes.put(names[i], bytes);
+      }
+      return classes;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Method to load the shaded mixin classes into a class loader, they are defined without being
+   * initialized, failures are only reported as a count unless {@link #DEBUG} is set
+   *
+   * @param classLoader The class loader which the classes are loaded into
+   */
+  private static void preload(ClassLoader classLoader) {
+    long start = System.nanoTime();
+    List<String> classNames = classesToLoad();
+    int failed = 0;
+    for (String className : classNames) {
+      try {
+        Class.forName(className, false, classLoader);
+      } catch (ClassNotFoundException | LinkageError e) {
+        failed++;
+        if (DEBUG) {
+          System.out.println("Could not preload " + className + ": " + e);
+        }
+      }
+    }
+    if (DEBUG) {
+      System.out.println("Preloaded " + (classNames.size() - failed) + " of " + classNames.size()
+        + " mixin classes in " + (System.nanoTime() - start) / 1000000L + "ms");
+    } else if (failed > 0) {
+      System.out.println("Could not preload " + failed + " of " + classNames.size()
+        + " mixin classes");
+    }
   }
 
+  /**
+   * Method to return the shaded mixin classes, the list is generated by the generateAsmList task
+   *
+   * @return The names of the classes, empty if the list was not generated
+   */
   public static List<String> classesToLoad() {
     return jarContentAsList("asm.txt");
   }
 
   private static List<String> jarContentAsList(String path) {
-    return new BufferedReader(
-      new InputStreamReader(FancyTagsTransformer.class.getResourceAsStream("/" + path))).lines()
-      .collect(Collectors.toList());
+    InputStream inputStream = FancyTagsTransformer.class.getResourceAsStream("/" + path);
+    if (inputStream == null) {
+      return Collections.emptyList();
+    }
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
+      StandardCharsets.UTF_8))) {
+      return reader.lines().filter(line -> !line.isEmpty()).collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
 
   @Override
   public byte[] transform(String name, String transformedName, byte[] basicClass) {
-    if (DEVELOPMENT_ENVIRONMENT) {
-      return basicClass;
+    if (!DEBUG) {
+      return remappedOf(name, basicClass);
     }
-    // Transform required classes
-    if (CLASSES_TO_MAP.contains(name)) {
-      // Only transform on forge
-      if (forge) {
-        try {
-          InputStream resourceAsStream = getClass().getResourceAsStream("/srg/" + name);
-          return IOUtils.toByteArray(resourceAsStream);
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
-      }
+    long start = System.nanoTime();
+    try {
+      return remappedOf(name, basicClass);
+    } finally {
+      TRANSFORM_CALLS.increment();
+      TRANSFORM_NANOS.add(System.nanoTime() - start);
+    }
+  }
+
+  private byte[] remappedOf(String name, byte[] basicClass) {
+    // Almost every class is rejected by the null check or the prefix
+    Map<String, byte[]> classes = remappedClasses;
+    if (classes == null || !name.startsWith(MIXIN_PACKAGE)) {
+      return basicClass;
     }
-    return basicClass;
+    // Mixins read their classes more than once, so the entries are kept
+    byte[] remapped = classes.get(name);
+    return remapped != null ? remapped : basicClass;
+  }
+
+  /**
+   * Method to return how often classes were passed to the transformer, only counted if
+   * {@link #DEBUG} is set
+   *
+   * @return The amount of transform calls
+   */
+  public static long transformCalls() {
+    return TRANSFORM_CALLS.sum();
+  }
+
+  /**
+   * Method to return the time the transformer spent in all of its calls, only measured if
+   * {@link #DEBUG} is set
+   *
+   * @return The time in nanoseconds
+   */
+  public static long transformNanos() {
+    return TRANSFORM_NANOS.sum();
   }
 }
@@ -18,6 +18,9 @@
  */
 package de.lennox.fancytags.inject.mixin.entity;
 
+import de.lennox.fancytags.render.LabelModelCache;
+import de.lennox.fancytags.render.LabelQueue;
+import de.lennox.fancytags.render.LabelStats;
 import de.lennox.fancytags.render.LivingLabelRenderer;
 import net.minecraft.client.renderer.entity.RendererLivingEntity;
 import net.minecraft.entity.EntityLivingBase;
@@ -39,12 +42,13 @@ public abstract class MixinRendererLivingEntity<T extends EntityLivingBase> {
    */
   @Overwrite
   public void renderName(T entity, double x, double y, double z) {
+    long start = LabelStats.start();
     // Check if the name of the entity should be rendered
     if (canRenderName(entity)) {
-      livingLabelRenderer.prepare(entity, x, y, z);
-      livingLabelRenderer.renderLabel(entity);
-      livingLabelRenderer.finish();
+      livingLabelRenderer.renderLabel(entity, x, y, z, LabelModelCache.modelOf(entity).name(), 0,
+        false, LabelQueue.NAME);
     }
+    LabelStats.stop(LabelStats.RENDER_NAME_NANOS, start);
   }
 
 
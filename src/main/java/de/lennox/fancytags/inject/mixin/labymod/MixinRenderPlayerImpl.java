@@ -18,31 +18,25 @@
  */
 package de.lennox.fancytags.inject.mixin.labymod;
 
+import de.lennox.fancytags.render.LabelCulling;
+import de.lennox.fancytags.render.LabelModel;
+import de.lennox.fancytags.render.LabelModelCache;
+import de.lennox.fancytags.render.LabelQueue;
+import de.lennox.fancytags.render.LabelStats;
 import de.lennox.fancytags.render.LivingLabelRenderer;
-import de.lennox.fancytags.render.font.FontRenderer;
+import de.lennox.fancytags.render.ScoreCache;
 import de.lennox.fancytags.render.font.Fonts;
 import net.labymod.core_implementation.mc18.RenderPlayerImplementation;
 import net.labymod.main.LabyMod;
 import net.labymod.mojang.RenderPlayerHook;
-import net.labymod.user.User;
-import net.labymod.user.group.EnumGroupDisplayType;
-import net.labymod.user.group.LabyGroup;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.entity.AbstractClientPlayer;
-import net.minecraft.client.renderer.GlStateManager;
-import net.minecraft.client.renderer.Tessellator;
-import net.minecraft.client.renderer.WorldRenderer;
-import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
-import net.minecraft.scoreboard.Score;
-import net.minecraft.scoreboard.ScoreObjective;
-import net.minecraft.scoreboard.Scoreboard;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 
 @Mixin(RenderPlayerImplementation.class)
 public class MixinRenderPlayerImpl {
 
-  private static final FontRenderer FR = Fonts.interOf(72);
   private final LivingLabelRenderer<AbstractClientPlayer> livingLabelRenderer = new LivingLabelRenderer<>();
 
   /**
@@ -51,6 +45,22 @@ public class MixinRenderPlayerImpl {
    */
   @Overwrite(remap = false)
   public void renderName(RenderPlayerHook.RenderPlayerCustom renderPlayer,
+    AbstractClientPlayer entity, double x, double y, double z) {
+    long start = LabelStats.start();
+    renderLabels(renderPlayer, entity, x, y, z);
+    LabelStats.stop(LabelStats.RENDER_NAME_NANOS, start);
+  }
+
+  /**
+   * Method to render the label stack of a player
+   *
+   * @param renderPlayer The renderer of the player
+   * @param entity       The player which the labels will be drawn for
+   * @param x            The x position of the player
+   * @param y            The y position of the player
+   * @param z            The z position of the player
+   */
+  private void renderLabels(RenderPlayerHook.RenderPlayerCustom renderPlayer,
     AbstractClientPlayer entity, double x, double y, double z) {
     // Check if the label is allowed to be rendered
     boolean canRender =
@@ -59,81 +69,50 @@ public class MixinRenderPlayerImpl {
     if (renderPlayer.canRenderTheName(entity)
       || entity == renderPlayer.getRenderManager().livingPlayer && LabyMod.getSettings().showMyName
       && canRender) {
+      // Skip the whole label stack if it is outside of the view or too far away
+      int level = LabelCulling.levelOf(x, y + entity.height + 0.5D, z);
+      if (level == LabelCulling.HIDDEN) {
+        LabelStats.increment(LabelStats.CULLED);
+        return;
+      }
       // Get the distance between yourself and the other entity, needed for drawing score entries
       double distance = entity.getDistanceSqToEntity(renderPlayer.getRenderManager().livingPlayer);
-      // Get the display name of the entity
-      String username = entity.getDisplayName().getFormattedText();
-      // Get the labymod user of the entity
-      User user = LabyMod.getInstance().getUserManager().getUser(entity.getUniqueID());
-      LabyGroup labyGroup = user.getGroup();
+      // The content of the labels is only rebuilt once per tick of the entity
+      LabelModel model = LabelModelCache.modelOf(entity);
+      String username = model.name();
 
-      float offset = 0f;
       double size;
 
       // If the entity is sneaking draw the occluded label
       if (entity.isSneaking()) {
-        livingLabelRenderer.prepare(entity, x, y, z);
-        int i = (int) (FR.stringWidthOf(username) / 2);
-        // Draw the background
-        Tessellator tessellator = Tessellator.getInstance();
-        WorldRenderer worldrenderer = tessellator.getWorldRenderer();
-        worldrenderer.begin(7, DefaultVertexFormats.POSITION_COLOR);
-        worldrenderer.pos(-i - 1, -1.5D, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
-        worldrenderer.pos(-i - 1, 8.5D, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
-        worldrenderer.pos(i + 1, 8.5D, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
-        worldrenderer.pos(i + 1, -1.5D, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
-        tessellator.draw();
-        GlStateManager.enableTexture2D();
-        // Draw the text
-        GlStateManager.enableDepth();
-        GlStateManager.depthMask(true);
-        FR.drawString(username, -FR.stringWidthOf(username) / 2, -1, 553648127);
-        livingLabelRenderer.finish();
+        livingLabelRenderer.renderLabel(entity, x, y, z, username, 0, true,
+          LabelQueue.NAME);
       } else {
         // Check if the user has a subtitle, if yes draw it
-        if (user.getSubTitle() != null && distance < 64) {
-          GlStateManager.pushMatrix();
-          size = user.getSubTitleSize();
-          GlStateManager.translate(0.0D, -0.2D + size / 8.0D, 0.0D);
-          // Scale down the subtitle
-          livingLabelRenderer.prepare(entity, x, y, z);
-          float f1 = (float) (0.016666668F * user.getSubTitleSize());
-          GlStateManager.scale(-f1, -f1, f1);
-          // Draw the subtitle
-          livingLabelRenderer.renderLabel(entity, user.getSubTitle());
-          livingLabelRenderer.finish();
+        if (model.subtitle() != null && distance < 64) {
+          size = model.subtitleSize();
+          // Draw the scaled down subtitle
+          livingLabelRenderer.renderLabel(entity, x, y - 0.2D + size / 8.0D, z, model.subtitle(),
+            (float) (0.016666668F * size), false, LabelQueue.SUBTITLE);
           y += size / 6.0D;
-          GlStateManager.popMatrix();
         }
 
         // Check if the entity is in distance
         if (distance < 100.0D) {
-          Scoreboard scoreboard = entity.getWorldScoreboard();
-          ScoreObjective scoreobjective = scoreboard.getObjectiveInDisplaySlot(2);
+          // The line is cached until the scoreboard packets change it
+          String scoreLine = ScoreCache.lineOf(entity.getWorldScoreboard(), entity.getName());
           // Check if the entity has a score objective
-          if (scoreobjective != null) {
+          if (scoreLine != null) {
             // Draw the score objective
-            Score score = scoreboard.getValueFromObjective(entity.getName(), scoreobjective);
-            livingLabelRenderer.prepare(entity, x, y, z);
-            livingLabelRenderer.renderLabel(entity,
-              score.getScorePoints() + " " + scoreobjective.getDisplayName());
-            livingLabelRenderer.finish();
-            y += FR.height() / 2f * 2.35f * 0.02666667F;
+            livingLabelRenderer.renderLabel(entity, x, y, z, scoreLine, 0, false,
+              LabelQueue.SCORE);
+            y += Fonts.current().height() / 2f * 2.35f * 0.02666667F;
           }
         }
 
-        // Check if the group of the player has a subtitle
-        if (labyGroup != null && labyGroup.getDisplayType() == EnumGroupDisplayType.BESIDE_NAME) {
-          size = -FR.stringWidthOf(username) / 2 - 2 - 8;
-          livingLabelRenderer.prepare(entity, x, y, z);
-          labyGroup.renderBadge(size, -0.5D + offset, 8.0D, 8.0D, false);
-          livingLabelRenderer.finish();
-        }
-
-        // Draw the default entity label
-        livingLabelRenderer.prepare(entity, x, y, z);
-        livingLabelRenderer.renderLabel(entity);
-        livingLabelRenderer.finish();
+        // The badge is queued with the name, so it shares its cap and has its own distance
+        livingLabelRenderer.renderLabel(entity, x, y, z, username, 0, false,
+          LabelQueue.NAME, model.badgeGroup());
       }
     }
   }
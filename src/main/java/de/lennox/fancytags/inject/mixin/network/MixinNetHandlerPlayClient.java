@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.inject.mixin.network;
+
+import de.lennox.fancytags.render.LabelModelCache;
+import de.lennox.fancytags.render.ScoreCache;
+import net.minecraft.client.network.NetHandlerPlayClient;
+import net.minecraft.network.play.server.S3BPacketScoreboardObjective;
+import net.minecraft.network.play.server.S3CPacketUpdateScore;
+import net.minecraft.network.play.server.S3DPacketDisplayScoreboard;
+import net.minecraft.network.play.server.S3EPacketTeams;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(NetHandlerPlayClient.class)
+public class MixinNetHandlerPlayClient {
+
+  // The handlers leave early on the network thread and run again on the client thread, so
+  // returning from them means the scoreboard was changed
+
+  @Inject(method = "handleUpdateScore", at = @At("RETURN"))
+  private void invalidateScore(S3CPacketUpdateScore packet, CallbackInfo callbackInfo) {
+    // Rebuild the score line of the player
+    ScoreCache.invalidate(packet.getPlayerName());
+  }
+
+  @Inject(method = "handleScoreboardObjective", at = @At("RETURN"))
+  private void invalidateObjective(S3BPacketScoreboardObjective packet,
+    CallbackInfo callbackInfo) {
+    // The displayed objective may have been renamed or removed
+    ScoreCache.invalidateAll();
+  }
+
+  @Inject(method = "handleDisplayScoreboard", at = @At("RETURN"))
+  private void invalidateDisplaySlot(S3DPacketDisplayScoreboard packet,
+    CallbackInfo callbackInfo) {
+    // Another objective may be displayed below names
+    ScoreCache.invalidateAll();
+  }
+
+  @Inject(method = "handleTeams", at = @At("RETURN"))
+  private void invalidateTeams(S3EPacketTeams packet, CallbackInfo callbackInfo) {
+    // Team prefixes and suffixes are part of the display names
+    LabelModelCache.invalidateAll();
+  }
+}
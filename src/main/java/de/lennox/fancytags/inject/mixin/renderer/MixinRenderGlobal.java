@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.inject.mixin.renderer;
+
+import de.lennox.fancytags.render.LabelMeshCache;
+import de.lennox.fancytags.render.LabelModelCache;
+import de.lennox.fancytags.render.LabelQueue;
+import de.lennox.fancytags.render.ScoreCache;
+import net.minecraft.client.renderer.RenderGlobal;
+import net.minecraft.client.renderer.culling.ICamera;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(RenderGlobal.class)
+public class MixinRenderGlobal {
+
+  @Inject(method = "renderEntities", at = @At("HEAD"))
+  private void beginLabels(Entity renderViewEntity, ICamera camera, float partialTicks,
+    CallbackInfo callbackInfo) {
+    // Start collecting the labels of all entities, forge calls this once for every render pass
+    LabelQueue.begin(camera, LabelQueue.renderPass());
+  }
+
+  @Inject(method = "renderEntities", at = @At("RETURN"))
+  private void flushLabels(Entity renderViewEntity, ICamera camera, float partialTicks,
+    CallbackInfo callbackInfo) {
+    // Draw all collected labels at once
+    LabelQueue.flush(LabelQueue.renderPass());
+  }
+
+  @Inject(method = "onEntityRemoved", at = @At("HEAD"))
+  private void releaseLabels(Entity entity, CallbackInfo callbackInfo) {
+    // Release the retained label meshes and the label model of the unloaded entity
+    LabelMeshCache.remove(entity);
+    LabelModelCache.remove(entity);
+    if (entity instanceof EntityPlayer) {
+      // Score lines are only cached for players, drop the line of the unloaded one
+      ScoreCache.invalidate(entity.getName());
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded for every atlas which is read from the cache or rasterized on the loader thread
+ */
+@Name("de.lennox.fancytags.AtlasBuild")
+@Label("Atlas Build")
+@Category({"FancyTags", "Font"})
+@Description("Reading or rasterizing the base page of a glyph atlas")
+final class AtlasBuildEvent extends jdk.jfr.Event {
+
+  @Label("Font")
+  String font;
+  @Label("Style")
+  int style;
+  @Label("Size")
+  int size;
+  @Label("Glyphs")
+  int glyphs;
+  @Label("Distance Field")
+  boolean distanceField;
+  @Label("Cached")
+  @Description("If the base page was read from the atlas cache")
+  boolean cached;
+}
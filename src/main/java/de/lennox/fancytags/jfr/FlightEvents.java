@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.jfr;
+
+import jdk.jfr.EventType;
+
+/**
+ * Entry point for the flight recorder events of FancyTags, events are only created while a
+ * recording has them enabled and the event classes are never loaded on runtimes without jfr
+ * <p>
+ * Timed events are started with a begin method which returns null if the event is not recorded,
+ * the returned token is passed to the matching end method
+ */
+public final class FlightEvents {
+
+  private static final boolean AVAILABLE = isAvailable();
+
+  private FlightEvents() {
+  }
+
+  /**
+   * Method to start timing an atlas build
+   *
+   * @return The token of the event or null if it is not recorded
+   */
+  public static Object beginAtlasBuild() {
+    // The type is checked first so no event is allocated while it is not recorded
+    if (!AVAILABLE || !Types.ATLAS_BUILD.isEnabled()) {
+      return null;
+    }
+    AtlasBuildEvent event = new AtlasBuildEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Method to commit an atlas build
+   *
+   * @param token         The token of {@link #beginAtlasBuild()}
+   * @param font          The name of the font file
+   * @param style         The awt style of the atlas
+   * @param size          The size of the atlas
+   * @param glyphs        The amount of glyphs on the base page
+   * @param distanceField Defines if the atlas stores distance fields
+   * @param cached        Defines if the base page was read from the cache
+   */
+  public static void endAtlasBuild(Object token, String font, int style, int size, int glyphs,
+    boolean distanceField, boolean cached) {
+    if (token == null) {
+      return;
+    }
+    AtlasBuildEvent event = (AtlasBuildEvent) token;
+    event.end();
+    event.font = font;
+    event.style = style;
+    event.size = size;
+    event.glyphs = glyphs;
+    event.distanceField = distanceField;
+    event.cached = cached;
+    event.commit();
+  }
+
+  /**
+   * Method to start timing the creation of a font
+   *
+   * @return The token of the event or null if it is not recorded
+   */
+  public static Object beginFontCreate() {
+    // The type is checked first so no event is allocated while it is not recorded
+    if (!AVAILABLE || !Types.FONT_CREATE.isEnabled()) {
+      return null;
+    }
+    FontCreateEvent event = new FontCreateEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Method to commit the creation of a font
+   *
+   * @param token  The token of {@link #beginFontCreate()}
+   * @param family The name of the font family
+   * @param style  The awt style of the font
+   * @param size   The size of the font
+   * @param parsed Defines if the font file was parsed for the font
+   */
+  public static void endFontCreate(Object token, String family, int style, float size,
+    boolean parsed) {
+    if (token == null) {
+      return;
+    }
+    FontCreateEvent event = (FontCreateEvent) token;
+    event.end();
+    event.family = family;
+    event.style = style;
+    event.size = size;
+    event.parsed = parsed;
+    event.commit();
+  }
+
+  /**
+   * Method to start timing a texture upload
+   *
+   * @return The token of the event or null if it is not recorded
+   */
+  public static Object beginTextureUpload() {
+    // The type is checked first so no event is allocated while it is not recorded
+    if (!AVAILABLE || !Types.TEXTURE_UPLOAD.isEnabled()) {
+      return null;
+    }
+    TextureUploadEvent event = new TextureUploadEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Method to commit a texture upload
+   *
+   * @param token   The token of {@link #beginTextureUpload()}
+   * @param texture The id of the texture
+   * @param width   The width of the uploaded region
+   * @param height  The height of the uploaded region
+   * @param bytes   The size of the uploaded pixels in bytes
+   */
+  public static void endTextureUpload(Object token, int texture, int width, int height,
+    long bytes) {
+    if (token == null) {
+      return;
+    }
+    TextureUploadEvent event = (TextureUploadEvent) token;
+    event.end();
+    event.texture = texture;
+    event.width = width;
+    event.height = height;
+    event.bytes = bytes;
+    event.commit();
+  }
+
+  /**
+   * Method to start timing the labels of a frame
+   *
+   * @return The token of the event or null if it is not recorded
+   */
+  public static Object beginLabelFrame() {
+    // The type is checked first so no event is allocated while it is not recorded
+    if (!AVAILABLE || !Types.LABEL_FRAME.isEnabled()) {
+      return null;
+    }
+    LabelFrameEvent event = new LabelFrameEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Method to commit the labels of a frame
+   *
+   * @param token   The token of {@link #beginLabelFrame()}
+   * @param labels  The amount of drawn labels
+   * @param culled  The amount of labels dropped by the label cap
+   * @param rebuilt The amount of rebuilt label meshes
+   */
+  public static void endLabelFrame(Object token, int labels, int culled, int rebuilt) {
+    if (token == null) {
+      return;
+    }
+    LabelFrameEvent event = (LabelFrameEvent) token;
+    event.end();
+    event.labels = labels;
+    event.culled = culled;
+    event.rebuilt = rebuilt;
+    event.commit();
+  }
+
+  /**
+   * The registered types of the events, they are only loaded if the flight recorder api exists
+   */
+  private static final class Types {
+
+    private static final EventType ATLAS_BUILD = EventType.getEventType(AtlasBuildEvent.class);
+    private static final EventType FONT_CREATE = EventType.getEventType(FontCreateEvent.class);
+    private static final EventType TEXTURE_UPLOAD =
+      EventType.getEventType(TextureUploadEvent.class);
+    private static final EventType LABEL_FRAME = EventType.getEventType(LabelFrameEvent.class);
+  }
+
+  /**
+   * Method to check if the flight recorder api exists, it was only backported to late java 8
+   * updates, the launch class loader has to exclude it so the events resolve their superclass
+   *
+   * @return If events can be created
+   */
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+}
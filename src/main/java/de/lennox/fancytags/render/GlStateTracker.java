@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import static org.lwjgl.opengl.GL11.GL_BLEND;
+import static org.lwjgl.opengl.GL11.GL_DEPTH_TEST;
+import static org.lwjgl.opengl.GL11.GL_LIGHTING;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+
+import de.lennox.fancytags.render.gl.Gl;
+
+/**
+ * Tracks the gl state which is changed by the label pipeline and skips changes which would not
+ * change anything, the state is only trusted between {@link #invalidate} calls so it has to be
+ * invalidated whenever foreign code could have run, the amount of issued and suppressed changes is
+ * counted per frame, changes are issued through the {@link Gl} backend
+ */
+public final class GlStateTracker {
+
+  private static final int UNKNOWN = -1;
+  private static final int BLEND = 0;
+  private static final int DEPTH = 1;
+  private static final int DEPTH_MASK = 2;
+  private static final int LIGHTING = 3;
+  private static final int TEXTURE_2D = 4;
+  // -1 if unknown, 0 if disabled and 1 if enabled
+  private static final int[] CAPABILITIES = new int[5];
+  private static final float[] COLOR = new float[4];
+  private static boolean colorKnown;
+  private static long blendFunction = UNKNOWN;
+  private static int texture = UNKNOWN;
+  private static int program = UNKNOWN;
+  private static int issued;
+  private static int suppressed;
+  private static int lastIssued;
+  private static int lastSuppressed;
+
+  static {
+    invalidate();
+  }
+
+  private GlStateTracker() {
+  }
+
+  /**
+   * Method to forget the tracked state, the next change of every state is issued
+   */
+  public static void invalidate() {
+    for (int i = 0; i < CAPABILITIES.length; i++) {
+      CAPABILITIES[i] = UNKNOWN;
+    }
+    colorKnown = false;
+    blendFunction = UNKNOWN;
+    texture = UNKNOWN;
+    program = UNKNOWN;
+  }
+
+  /**
+   * Method to forget the bound texture, texture uploads bind their texture without the tracker and
+   * glyphs are uploaded in the middle of a frame
+   */
+  public static void invalidateTexture() {
+    texture = UNKNOWN;
+  }
+
+  /**
+   * Method to start counting the changes of a new frame
+   */
+  public static void nextFrame() {
+    lastIssued = issued;
+    lastSuppressed = suppressed;
+    issued = 0;
+    suppressed = 0;
+  }
+
+  /**
+   * Method to enable or disable blending
+   *
+   * @param enabled The wanted state
+   */
+  public static void blend(boolean enabled) {
+    if (change(BLEND, enabled)) {
+      Gl.backend().capability(GL_BLEND, enabled);
+    }
+  }
+
+  /**
+   * Method to enable or disable depth testing
+   *
+   * @param enabled The wanted state
+   */
+  public static void depth(boolean enabled) {
+    if (change(DEPTH, enabled)) {
+      Gl.backend().capability(GL_DEPTH_TEST, enabled);
+    }
+  }
+
+  /**
+   * Method to enable or disable depth writes
+   *
+   * @param enabled The wanted state
+   */
+  public static void depthMask(boolean enabled) {
+    if (change(DEPTH_MASK, enabled)) {
+      Gl.backend().depthMask(enabled);
+    }
+  }
+
+  /**
+   * Method to enable or disable lighting
+   *
+   * @param enabled The wanted state
+   */
+  public static void lighting(boolean enabled) {
+    if (change(LIGHTING, enabled)) {
+      Gl.backend().capability(GL_LIGHTING, enabled);
+    }
+  }
+
+  /**
+   * Method to enable or disable texturing
+   *
+   * @param enabled The wanted state
+   */
+  public static void texture2D(boolean enabled) {
+    if (change(TEXTURE_2D, enabled)) {
+      Gl.backend().capability(GL_TEXTURE_2D, enabled);
+    }
+  }
+
+  /**
+   * Method to set the separate blend function, every factor has to fit into 16 bits which is true
+   * for all gl blend factors
+   *
+   * @param sourceColor      The source factor of the color
+   * @param destinationColor The destination factor of the color
+   * @param sourceAlpha      The source factor of the alpha
+   * @param destinationAlpha The destination factor of the alpha
+   */
+  public static void blendFunction(int sourceColor, int destinationColor, int sourceAlpha,
+    int destinationAlpha) {
+    // Pack the four factors into one key
+    long function = (long) sourceColor << 48 | (long) destinationColor << 32
+      | (long) sourceAlpha << 16 | destinationAlpha;
+    if (function == blendFunction) {
+      suppressed++;
+      return;
+    }
+    blendFunction = function;
+    issued++;
+    Gl.backend().blendFunction(sourceColor, destinationColor, sourceAlpha, destinationAlpha);
+  }
+
+  /**
+   * Method to set the current color
+   *
+   * @param red   The red component
+   * @param green The green component
+   * @param blue  The blue component
+   * @param alpha The alpha component
+   */
+  public static void color(float red, float green, float blue, float alpha) {
+    if (colorKnown && COLOR[0] == red && COLOR[1] == green && COLOR[2] == blue
+      && COLOR[3] == alpha) {
+      suppressed++;
+      return;
+    }
+    COLOR[0] = red;
+    COLOR[1] = green;
+    COLOR[2] = blue;
+    COLOR[3] = alpha;
+    colorKnown = true;
+    issued++;
+    Gl.backend().color(red, green, blue, alpha);
+  }
+
+  /**
+   * Method to bind a texture to the first texture unit
+   *
+   * @param texture The id of the texture
+   */
+  public static void bindTexture(int texture) {
+    if (texture == GlStateTracker.texture) {
+      suppressed++;
+      return;
+    }
+    GlStateTracker.texture = texture;
+    issued++;
+    LabelStats.increment(LabelStats.TEXTURE_BINDS);
+    Gl.backend().bindTexture(texture);
+  }
+
+  /**
+   * Method to switch the shader program
+   *
+   * @param program The id of the program, 0 for the fixed function pipeline
+   */
+  public static void useProgram(int program) {
+    if (program == GlStateTracker.program) {
+      suppressed++;
+      return;
+    }
+    GlStateTracker.program = program;
+    issued++;
+    Gl.backend().useProgram(program);
+  }
+
+  /**
+   * Method to return the amount of state changes which were issued in the last frame
+   *
+   * @return The amount of issued changes
+   */
+  public static int issuedChanges() {
+    return lastIssued;
+  }
+
+  /**
+   * Method to return the amount of state changes which were skipped in the last frame
+   *
+   * @return The amount of suppressed changes
+   */
+  public static int suppressedChanges() {
+    return lastSuppressed;
+  }
+
+  /**
+   * Method to record a change of a capability
+   *
+   * @param capability The index of the capability
+   * @param enabled    The wanted state
+   * @return If the change has to be issued
+   */
+  private static boolean change(int capability, boolean enabled) {
+    int state = enabled ? 1 : 0;
+    if (CAPABILITIES[capability] == state) {
+      suppressed++;
+      return false;
+    }
+    CAPABILITIES[capability] = state;
+    issued++;
+    return true;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.culling.Frustum;
+import net.minecraft.client.renderer.culling.ICamera;
+import net.minecraft.util.AxisAlignedBB;
+
+/**
+ * Decides how much of a label is drawn before any gl work is done, labels outside of the view
+ * frustum are hidden and labels further away are drawn with cheaper levels of detail
+ */
+public class LabelCulling {
+
+  public static final int FULL = 0;
+  public static final int NO_BACKGROUND = 1;
+  public static final int TEXT_ONLY = 2;
+  public static final int HIDDEN = 3;
+  // Parts of a label, see partsOf
+  public static final int BACKGROUND = 1;
+  public static final int SEE_THROUGH = 1 << 1;
+  public static final int SHADOW = 1 << 2;
+  public static final int DEFAULT_BACKGROUND_DISTANCE = 32;
+  public static final int DEFAULT_DETAIL_DISTANCE = 64;
+  public static final int DEFAULT_LABEL_DISTANCE = 128;
+  public static final int DEFAULT_BADGE_DISTANCE = 64;
+  public static final int DEFAULT_MAX_LABELS = 100;
+  private static final Minecraft MC = Minecraft.getMinecraft();
+  // Extents of the box which contains every label line of an entity around the label origin
+  private static final double HORIZONTAL_EXTENT = 2.5D;
+  private static final double VERTICAL_EXTENT = 1.0D;
+  private static ICamera camera;
+  private static double backgroundDistanceSq = square(DEFAULT_BACKGROUND_DISTANCE);
+  private static double detailDistanceSq = square(DEFAULT_DETAIL_DISTANCE);
+  private static double labelDistanceSq = square(DEFAULT_LABEL_DISTANCE);
+  private static double badgeDistanceSq = square(DEFAULT_BADGE_DISTANCE);
+  private static int maxLabels = DEFAULT_MAX_LABELS;
+  private static boolean background = true;
+  private static boolean seeThrough = true;
+  private static boolean shadow;
+
+  /**
+   * Method to set the distances of the detail levels and the label cap
+   *
+   * @param backgroundDistance The distance from which on labels are drawn without background
+   * @param detailDistance     The distance from which on labels are drawn without the text which
+   *                           shines through walls and without the text shadow
+   * @param labelDistance      The distance from which on labels are not drawn anymore
+   * @param badgeDistance      The distance from which on labels are drawn without the badge of
+   *                           their labymod group
+   * @param maxLabels          The maximum amount of labels which are drawn per frame, the nearest
+   *                           ones are kept
+   */
+  public static void configure(int backgroundDistance, int detailDistance, int labelDistance,
+    int badgeDistance, int maxLabels) {
+    backgroundDistanceSq = square(backgroundDistance);
+    detailDistanceSq = square(detailDistance);
+    labelDistanceSq = square(labelDistance);
+    badgeDistanceSq = square(badgeDistance);
+    LabelCulling.maxLabels = maxLabels;
+  }
+
+  /**
+   * Method to enable or disable parts of all labels, a disabled part is never drawn and does not
+   * change the detail levels at which the other parts are dropped
+   *
+   * @param background Defines if labels have a background
+   * @param seeThrough Defines if the low alpha text which shines through walls is drawn
+   * @param shadow     Defines if the text has a shadow
+   */
+  public static void setParts(boolean background, boolean seeThrough, boolean shadow) {
+    LabelCulling.background = background;
+    LabelCulling.seeThrough = seeThrough;
+    LabelCulling.shadow = shadow;
+  }
+
+  /**
+   * Method to return the parts which are drawn for a label at a detail level, the background is
+   * only drawn at {@link #FULL}, the text which shines through walls and the shadow are dropped
+   * at {@link #TEXT_ONLY}
+   *
+   * @param level The detail level of the label
+   * @return The parts as a combination of {@link #BACKGROUND}, {@link #SEE_THROUGH} and
+   * {@link #SHADOW}
+   */
+  public static int partsOf(int level) {
+    int parts = 0;
+    if (background && level == FULL) {
+      parts |= BACKGROUND;
+    }
+    if (seeThrough && level <= NO_BACKGROUND) {
+      parts |= SEE_THROUGH;
+    }
+    if (shadow && level <= NO_BACKGROUND) {
+      parts |= SHADOW;
+    }
+    return parts;
+  }
+
+  /**
+   * Method to set the camera of the current entity pass, labels drawn outside of it are not
+   * frustum culled
+   *
+   * @param camera The camera of the pass or null if it ended
+   */
+  static void setCamera(ICamera camera) {
+    LabelCulling.camera = camera;
+  }
+
+  /**
+   * Method to return the detail level of a label
+   *
+   * @param x The x position of the label relative to the camera
+   * @param y The y position of the label relative to the camera
+   * @param z The z position of the label relative to the camera
+   * @return The detail level, one of {@link #FULL}, {@link #NO_BACKGROUND}, {@link #TEXT_ONLY}
+   * and {@link #HIDDEN}
+   */
+  public static int levelOf(double x, double y, double z) {
+    double distanceSq = x * x + y * y + z * z;
+    if (distanceSq >= labelDistanceSq || !isInFrustum(x, y, z)) {
+      return HIDDEN;
+    }
+    if (distanceSq >= detailDistanceSq) {
+      return TEXT_ONLY;
+    }
+    return distanceSq >= backgroundDistanceSq ? NO_BACKGROUND : FULL;
+  }
+
+  /**
+   * Method to check if the badge beside a label is drawn, badges have their own distance which is
+   * independent of the detail level of the label
+   *
+   * @param distanceSq The squared distance of the label to the camera
+   * @return If the badge is drawn
+   */
+  static boolean showsBadge(double distanceSq) {
+    return distanceSq < badgeDistanceSq;
+  }
+
+  /**
+   * Method to return the maximum amount of labels which are drawn per frame
+   *
+   * @return The label cap
+   */
+  static int maxLabels() {
+    return maxLabels;
+  }
+
+  private static boolean isInFrustum(double x, double y, double z) {
+    if (camera == null) {
+      return true;
+    }
+    // The frustum works in world space, the label is relative to the view entity
+    double worldX = x + MC.getRenderManager().viewerPosX;
+    double worldY = y + MC.getRenderManager().viewerPosY;
+    double worldZ = z + MC.getRenderManager().viewerPosZ;
+    double minX = worldX - HORIZONTAL_EXTENT;
+    double minY = worldY - VERTICAL_EXTENT;
+    double minZ = worldZ - HORIZONTAL_EXTENT;
+    double maxX = worldX + HORIZONTAL_EXTENT;
+    double maxY = worldY + VERTICAL_EXTENT;
+    double maxZ = worldZ + HORIZONTAL_EXTENT;
+    // The vanilla frustum can test a box without allocating one
+    if (camera instanceof Frustum) {
+      return ((Frustum) camera).isBoxInFrustum(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+    return camera.isBoundingBoxInFrustum(new AxisAlignedBB(minX, minY, minZ, maxX, maxY, maxZ));
+  }
+
+  private static double square(int distance) {
+    return (double) distance * distance;
+  }
+}
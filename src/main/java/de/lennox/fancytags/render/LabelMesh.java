@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import de.lennox.fancytags.render.font.FontRenderer;
+import de.lennox.fancytags.render.font.GlyphBatch;
+import de.lennox.fancytags.render.font.TextLayout;
+import de.lennox.fancytags.render.gl.Gl;
+import de.lennox.fancytags.render.gl.GlBackend;
+
+/**
+ * Retained geometry of one label in label space, it is compiled into two display lists, one with
+ * the background and the occluded text and one with the visible text, and only rebuilt if the
+ * content of the label or the atlases of the font change
+ */
+public class LabelMesh {
+
+  static final int OCCLUDED_COLOR = 553648127;
+  private static final int BACKGROUND_COLOR = 0x40000000;
+  private int list = -1;
+  private int backgroundDraws;
+  private int textDraws;
+  private FontRenderer fontRenderer;
+  private String text;
+  private int textHash;
+  private int offset;
+  private boolean sneaking;
+  private int parts;
+  private boolean obfuscated;
+  private int glyphs;
+  private int generation;
+  int lastFrame;
+
+  /**
+   * Method to check if this mesh still shows a label, meshes with obfuscated text are rebuilt on
+   * every frame
+   *
+   * @param fontRenderer The font renderer of the label
+   * @param text         The text of the label
+   * @param offset       The y offset of the label
+   * @param sneaking     Defines if the label belongs to a sneaking entity
+   * @param parts        The parts of the label, see {@link LabelCulling#partsOf}
+   * @param generation   The generation of the atlases of the font
+   * @return If the mesh can be drawn as it is
+   */
+  boolean matches(FontRenderer fontRenderer, String text, int offset, boolean sneaking, int parts,
+    int generation) {
+    // Compare the cached hash first, the text itself only if the hashes are equal
+    return list != -1 && !obfuscated && this.fontRenderer == fontRenderer
+      && this.generation == generation && this.offset == offset
+      && this.sneaking == sneaking && this.parts == parts && textHash == text.hashCode()
+      && this.text.equals(text);
+  }
+
+  /**
+   * Method to emit the geometry of a label into two batches, no gl state is touched so this can
+   * run on any thread once the glyphs of the layout were prefetched on the render thread
+   *
+   * @param fontRenderer    The font renderer of the label, its atlas has to be ready
+   * @param layout          The layout of the text
+   * @param backgroundBatch The batch of the background and the occluded text
+   * @param textBatch       The batch of the visible text
+   * @param text            The text of the label
+   * @param offset          The y offset of the label
+   * @param sneaking        Defines if the label belongs to a sneaking entity, its text is only
+   *                        drawn with low alpha and depth testing
+   * @param parts           The parts of the label, see {@link LabelCulling#partsOf}
+   */
+  void prepare(FontRenderer fontRenderer, TextLayout layout, GlyphBatch backgroundBatch,
+    GlyphBatch textBatch, String text, int offset, boolean sneaking, int parts) {
+    this.fontRenderer = fontRenderer;
+    this.text = text;
+    this.textHash = text.hashCode();
+    this.offset = offset;
+    this.sneaking = sneaking;
+    this.parts = parts;
+    this.generation = fontRenderer.generation();
+    this.obfuscated = layout.isObfuscated();
+    this.glyphs = 0;
+    float halfWidth = layout.width() / 2;
+    backgroundBatch.transform(null);
+    textBatch.transform(null);
+    // The background and the low alpha text for occluded entities
+    if ((parts & LabelCulling.BACKGROUND) != 0) {
+      fontRenderer.emitRect(backgroundBatch, -halfWidth - 1, -1.5 + offset, halfWidth + 1,
+        fontRenderer.lineHeight() - 0.5 + offset, BACKGROUND_COLOR);
+    }
+    if (!sneaking && (parts & LabelCulling.SEE_THROUGH) != 0) {
+      fontRenderer.emitString(backgroundBatch, layout, -halfWidth, offset - 1, OCCLUDED_COLOR);
+      glyphs += layout.glyphCount();
+    }
+    if (!sneaking && (parts & LabelCulling.SHADOW) != 0) {
+      fontRenderer.emitString(textBatch, layout, -halfWidth, offset - 1, -1, true);
+      glyphs += layout.glyphCount();
+    }
+    // The full alpha text for non occluded entities, sneaking entities stay transparent
+    fontRenderer.emitString(textBatch, layout, -halfWidth, offset - 1,
+      sneaking ? OCCLUDED_COLOR : -1);
+    glyphs += layout.glyphCount();
+  }
+
+  /**
+   * Method to compile the prepared geometry of a label into the display lists, has to be called on
+   * the render thread, both batches are cleared
+   *
+   * @param backgroundBatch The batch of the background and the occluded text
+   * @param textBatch       The batch of the visible text
+   */
+  void compile(GlyphBatch backgroundBatch, GlyphBatch textBatch) {
+    GlBackend backend = Gl.backend();
+    if (list == -1) {
+      list = backend.createLists(2);
+    }
+    backend.beginList(list);
+    backgroundDraws = backgroundBatch.compile();
+    backend.endList();
+    backend.beginList(list + 1);
+    textDraws = textBatch.compile();
+    backend.endList();
+    LabelStats.add(LabelStats.GLYPHS, glyphs);
+  }
+
+  /**
+   * Method to return the display list of the background and the occluded text
+   *
+   * @return The id of the display list
+   */
+  int backgroundList() {
+    return list;
+  }
+
+  /**
+   * Method to return the amount of draw calls in the display list of the background
+   *
+   * @return The amount of draw calls
+   */
+  int backgroundDraws() {
+    return backgroundDraws;
+  }
+
+  /**
+   * Method to return the amount of draw calls in the display list of the visible text
+   *
+   * @return The amount of draw calls
+   */
+  int textDraws() {
+    return textDraws;
+  }
+
+  /**
+   * Method to return the display list of the visible text
+   *
+   * @return The id of the display list
+   */
+  int textList() {
+    return list + 1;
+  }
+
+  /**
+   * Method to release the display lists of this mesh
+   */
+  void delete() {
+    if (list != -1) {
+      Gl.backend().deleteLists(list, 2);
+      list = -1;
+    }
+  }
+}
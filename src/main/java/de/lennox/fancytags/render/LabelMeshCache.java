@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import net.minecraft.entity.Entity;
+
+/**
+ * Keeps the retained {@link LabelMesh} of every entity and label slot, meshes are released when
+ * their entity is removed from the world or when they were not drawn for a while
+ */
+public class LabelMeshCache {
+
+  private static final int SWEEP_INTERVAL = 64;
+  private static final int MAX_IDLE_FRAMES = 200;
+  private static final HashMap<Entity, LabelMesh[]> MESHES = new HashMap<>();
+
+  /**
+   * Method to return the mesh of a label slot of an entity, it is created if it does not exist
+   *
+   * @param owner The entity which owns the label
+   * @param slot  The slot of the label
+   * @param frame The current frame
+   * @return The mesh of the slot
+   */
+  static LabelMesh meshOf(Entity owner, int slot, int frame) {
+    LabelMesh[] meshes = MESHES.get(owner);
+    if (meshes == null) {
+      meshes = new LabelMesh[LabelQueue.SLOTS];
+      MESHES.put(owner, meshes);
+    }
+    LabelMesh mesh = meshes[slot];
+    if (mesh == null) {
+      mesh = meshes[slot] = new LabelMesh();
+    }
+    mesh.lastFrame = frame;
+    return mesh;
+  }
+
+  /**
+   * Method to release all meshes of an entity, called when it is removed from the world
+   *
+   * @param owner The entity which was removed
+   */
+  public static void remove(Entity owner) {
+    LabelMesh[] meshes = MESHES.remove(owner);
+    if (meshes != null) {
+      for (LabelMesh mesh : meshes) {
+        if (mesh != null) {
+          mesh.delete();
+        }
+      }
+    }
+  }
+
+  /**
+   * Method to release meshes which were not drawn for a while, this also covers slots which are not
+   * shown anymore and entities of a previous world
+   *
+   * @param frame The current frame
+   */
+  static void sweep(int frame) {
+    if (frame % SWEEP_INTERVAL != 0) {
+      return;
+    }
+    Iterator<Map.Entry<Entity, LabelMesh[]>> iterator = MESHES.entrySet().iterator();
+    while (iterator.hasNext()) {
+      LabelMesh[] meshes = iterator.next().getValue();
+      boolean empty = true;
+      for (int slot = 0; slot < meshes.length; slot++) {
+        LabelMesh mesh = meshes[slot];
+        if (mesh != null && frame - mesh.lastFrame > MAX_IDLE_FRAMES) {
+          mesh.delete();
+          meshes[slot] = null;
+        } else if (mesh != null) {
+          empty = false;
+        }
+      }
+      if (empty) {
+        iterator.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import net.labymod.main.LabyMod;
+import net.labymod.user.User;
+import net.labymod.user.group.EnumGroupDisplayType;
+import net.labymod.user.group.LabyGroup;
+import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.entity.player.EntityPlayer;
+
+/**
+ * Immutable snapshot of the content of the labels of an entity, it is built at most once per tick
+ * of the entity by the {@link LabelModelCache} so frames only read it
+ */
+public final class LabelModel {
+
+  private final int tick;
+  private final String name;
+  private final int offset;
+  private final String subtitle;
+  private final double subtitleSize;
+  private final LabyGroup badgeGroup;
+
+  private LabelModel(int tick, String name, int offset, String subtitle, double subtitleSize,
+    LabyGroup badgeGroup) {
+    this.tick = tick;
+    this.name = name;
+    this.offset = offset;
+    this.subtitle = subtitle;
+    this.subtitleSize = subtitleSize;
+    this.badgeGroup = badgeGroup;
+  }
+
+  /**
+   * Method to build the model of an entity, players also receive the content of their labymod
+   * user
+   *
+   * @param entity The entity
+   * @return The model of the current tick of the entity
+   */
+  static LabelModel of(EntityLivingBase entity) {
+    String name = entity.getDisplayName().getFormattedText();
+    // Minecraft cosmetics need room above the label
+    int offset = name.equals("deadmau5") ? -10 : 0;
+    String subtitle = null;
+    double subtitleSize = 0;
+    LabyGroup badgeGroup = null;
+    if (entity instanceof EntityPlayer) {
+      User user = LabyMod.getInstance().getUserManager().getUser(entity.getUniqueID());
+      if (user != null) {
+        subtitle = user.getSubTitle();
+        subtitleSize = user.getSubTitleSize();
+        LabyGroup group = user.getGroup();
+        if (group != null && group.getDisplayType() == EnumGroupDisplayType.BESIDE_NAME) {
+          badgeGroup = group;
+        }
+      }
+    }
+    return new LabelModel(entity.ticksExisted, name, offset, subtitle, subtitleSize, badgeGroup);
+  }
+
+  /**
+   * Method to return the tick of the entity this model was built in
+   *
+   * @return The ticks the entity existed for when the model was built
+   */
+  int tick() {
+    return tick;
+  }
+
+  /**
+   * Method to return the formatted display name of the entity
+   *
+   * @return The display name
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Method to return the y offset of the name label
+   *
+   * @return The offset of the label
+   */
+  public int offset() {
+    return offset;
+  }
+
+  /**
+   * Method to return the labymod subtitle of the player
+   *
+   * @return The subtitle or null if there is none
+   */
+  public String subtitle() {
+    return subtitle;
+  }
+
+  /**
+   * Method to return the size of the labymod subtitle of the player
+   *
+   * @return The size of the subtitle
+   */
+  public double subtitleSize() {
+    return subtitleSize;
+  }
+
+  /**
+   * Method to return the labymod group whose badge is drawn beside the name
+   *
+   * @return The group or null if no badge is drawn
+   */
+  public LabyGroup badgeGroup() {
+    return badgeGroup;
+  }
+}
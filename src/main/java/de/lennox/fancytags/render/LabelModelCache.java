@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityLivingBase;
+
+/**
+ * Keeps the {@link LabelModel} of every labelled entity, a model is rebuilt once the entity ticked
+ * since it was built and all models are dropped when teams change, models of removed entities and
+ * entities of previous worlds are released
+ */
+public class LabelModelCache {
+
+  private static final int SWEEP_INTERVAL = 64;
+  private static final int MAX_IDLE_TICKS = 200;
+  private static final HashMap<Entity, LabelModel> MODELS = new HashMap<>();
+
+  /**
+   * Method to return the model of an entity, has to be called on the client thread
+   *
+   * @param entity The entity
+   * @return The model of the current tick of the entity
+   */
+  public static LabelModel modelOf(EntityLivingBase entity) {
+    LabelModel model = MODELS.get(entity);
+    if (model == null || model.tick() != entity.ticksExisted) {
+      model = LabelModel.of(entity);
+      MODELS.put(entity, model);
+    }
+    return model;
+  }
+
+  /**
+   * Method to release the model of an entity, called when it is removed from the world
+   *
+   * @param entity The entity which was removed
+   */
+  public static void remove(Entity entity) {
+    MODELS.remove(entity);
+  }
+
+  /**
+   * Method to drop all models, called if the teams which format the display names changed
+   */
+  public static void invalidateAll() {
+    MODELS.clear();
+  }
+
+  /**
+   * Method to release models of dead entities, of entities which were not labelled for a while and
+   * of entities of a previous world
+   *
+   * @param frame The current frame
+   */
+  static void sweep(int frame) {
+    if (frame % SWEEP_INTERVAL != 0 || MODELS.isEmpty()) {
+      return;
+    }
+    Minecraft minecraft = Minecraft.getMinecraft();
+    Iterator<Map.Entry<Entity, LabelModel>> iterator = MODELS.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Entity, LabelModel> entry = iterator.next();
+      Entity entity = entry.getKey();
+      if (entity.isDead || entity.worldObj != minecraft.theWorld
+        || entity.ticksExisted - entry.getValue().tick() > MAX_IDLE_TICKS) {
+        iterator.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import static org.lwjgl.opengl.GL11.GL_ONE;
+import static org.lwjgl.opengl.GL11.GL_ONE_MINUS_SRC_ALPHA;
+import static org.lwjgl.opengl.GL11.GL_SRC_ALPHA;
+import static org.lwjgl.opengl.GL11.GL_ZERO;
+
+import de.lennox.fancytags.jfr.FlightEvents;
+import de.lennox.fancytags.render.font.DistanceFieldShader;
+import de.lennox.fancytags.render.font.FontRenderer;
+import de.lennox.fancytags.render.font.Fonts;
+import de.lennox.fancytags.render.font.GlyphAtlas;
+import de.lennox.fancytags.render.font.GlyphBatch;
+import de.lennox.fancytags.render.font.TextLayout;
+import de.lennox.fancytags.render.gl.Gl;
+import de.lennox.fancytags.render.gl.GlBackend;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import net.labymod.user.group.LabyGroup;
+import net.minecraft.client.renderer.culling.ICamera;
+import net.minecraft.entity.Entity;
+import net.minecraftforge.client.MinecraftForgeClient;
+import org.lwjgl.BufferUtils;
+
+/**
+ * Collects the labels of all entities during the entity pass and draws them at once at the end of
+ * it, every label is a retained {@link LabelMesh} which is only rebuilt if its content changes, so
+ * a stable label costs one matrix and two display list calls, only the nearest labels up to the
+ * cap of {@link LabelCulling} are drawn together with their labymod badges, the quads of changed
+ * labels are emitted in parallel when many of them change in one frame
+ */
+public class LabelQueue {
+
+  public static final int NAME = 0;
+  public static final int SCORE = 1;
+  public static final int SUBTITLE = 2;
+  static final int SLOTS = 3;
+  // Below this amount of changed labels the quads are emitted on the render thread
+  private static final int PARALLEL_THRESHOLD = 8;
+  private static final int SPLIT_SIZE = 4;
+  private static final ForkJoinPool PREPARE_POOL = new ForkJoinPool(
+    Math.max(1, Runtime.getRuntime().availableProcessors() - 1), pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("FancyTags Label Prepare " + thread.getPoolIndex());
+      thread.setDaemon(true);
+      return thread;
+    }, null, false);
+  private static final FloatBuffer MATRIX = BufferUtils.createFloatBuffer(16);
+  // Forge renders the entities in two passes per frame, vanilla only in one
+  private static final boolean FORGE = isForge();
+  private static Entry[] entries = new Entry[64];
+  private static int size;
+  private static int frame;
+  private static boolean collecting;
+  // The font of the current flush, it is read by the workers
+  private static FontRenderer fontRenderer;
+
+  /**
+   * Method to return the entity pass which is currently rendered
+   *
+   * @return The forge render pass, always 0 without forge
+   */
+  public static int renderPass() {
+    return FORGE ? MinecraftForgeClient.getRenderPass() : 0;
+  }
+
+  /**
+   * Method to start collecting labels, called at the start of every entity pass, labels are only
+   * collected in the first pass of a frame so the frame counters advance once per frame, labels
+   * of later passes are drawn directly
+   *
+   * @param camera The camera of the pass, labels outside of it are culled
+   * @param pass   The entity pass, see {@link #renderPass()}
+   */
+  public static void begin(ICamera camera, int pass) {
+    if (pass != 0) {
+      return;
+    }
+    size = 0;
+    frame++;
+    collecting = true;
+    GlStateTracker.nextFrame();
+    LabelStats.nextFrame();
+    LabelCulling.setCamera(camera);
+  }
+
+  /**
+   * Method to check if labels are currently collected, if not they have to be drawn directly
+   *
+   * @return If labels are currently collected
+   */
+  public static boolean isCollecting() {
+    return collecting;
+  }
+
+  /**
+   * Method to queue a label, its mesh is only resolved if it is within the label cap
+   *
+   * @param owner     The entity which owns the label
+   * @param slot      The slot of the label, one of {@link #NAME}, {@link #SCORE} and
+   *                  {@link #SUBTITLE}
+   * @param transform The billboard transform of the label, it is copied
+   * @param text      The text of the label
+   * @param offset    The y offset of the label
+   * @param sneaking  Defines if the label belongs to a sneaking entity, those are only drawn with
+   *                  low alpha and depth testing
+   * @param level     The detail level of the label, see {@link LabelCulling}
+   * @param badge     The labymod group whose badge is drawn beside the label, null if there is
+   *                  none, it is only drawn if the label is within the label cap
+   */
+  public static void add(Entity owner, int slot, LabelTransform transform, String text,
+    int offset, boolean sneaking, int level, LabyGroup badge) {
+    if (size == entries.length) {
+      entries = Arrays.copyOf(entries, size * 2);
+    }
+    Entry entry = entries[size];
+    if (entry == null) {
+      entry = entries[size] = new Entry();
+    }
+    entry.transform.set(transform);
+    entry.owner = owner;
+    entry.slot = slot;
+    entry.text = text;
+    entry.offset = offset;
+    entry.sneaking = sneaking;
+    entry.level = level;
+    entry.badge = badge;
+    entry.distance = transform.distanceSq();
+    size++;
+  }
+
+  /**
+   * Method to draw all queued labels and stop collecting, called at the end of every entity pass
+   *
+   * @param pass The entity pass, see {@link #renderPass()}
+   */
+  public static void flush(int pass) {
+    if (pass != 0) {
+      return;
+    }
+    long start = LabelStats.start();
+    Object event = FlightEvents.beginLabelFrame();
+    collecting = false;
+    LabelCulling.setCamera(null);
+    // Release fonts which were not drawn for a while, this is rate limited by the registry
+    Fonts.evictUnused();
+    LabelMeshCache.sweep(frame);
+    LabelModelCache.sweep(frame);
+    if (size == 0) {
+      LabelStats.stop(LabelStats.FLUSH_NANOS, start);
+      return;
+    }
+    // Draw far labels first so the blending of overlapping labels is correct
+    sortFarToNear();
+    // Only the nearest labels are drawn, their meshes are rebuilt if their content changed
+    int first = Math.max(0, size - LabelCulling.maxLabels());
+    LabelStats.add(LabelStats.CULLED, first);
+    LabelStats.add(LabelStats.LABELS, size - first);
+    fontRenderer = Fonts.current();
+    int generation = fontRenderer.generation();
+    int rebuilt = 0;
+    for (int i = first; i < size; i++) {
+      Entry entry = entries[i];
+      LabelMesh mesh = entry.mesh = LabelMeshCache.meshOf(entry.owner, entry.slot, frame);
+      entry.parts = LabelCulling.partsOf(entry.level);
+      if (!mesh.matches(fontRenderer, entry.text, entry.offset, entry.sneaking, entry.parts,
+        generation)) {
+        // Glyphs are rasterized and uploaded here, the quads are emitted afterwards
+        entry.layout = fontRenderer.layoutOf(entry.text);
+        fontRenderer.prefetch(entry.layout);
+        rebuilt++;
+      }
+    }
+    // Emit the quads of changed labels in parallel, the workers only read the prefetched glyphs,
+    // if an atlas changed while they were loaded the frame stays on this thread to be safe
+    if (rebuilt >= PARALLEL_THRESHOLD && fontRenderer.generation() == generation) {
+      PREPARE_POOL.invoke(new PrepareTask(first, size));
+    }
+    for (int i = first; i < size; i++) {
+      Entry entry = entries[i];
+      if (entry.layout != null) {
+        if (!entry.prepared) {
+          prepare(entry);
+        }
+        entry.mesh.compile(entry.backgroundBatch, entry.textBatch);
+        entry.layout = null;
+        entry.prepared = false;
+      }
+    }
+    // The entity pass changed the state since the last label
+    GlStateTracker.invalidate();
+    GlStateTracker.lighting(false);
+    GlStateTracker.depthMask(false);
+    GlStateTracker.depth(false);
+    GlStateTracker.blend(true);
+    GlStateTracker.blendFunction(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ZERO);
+    GlStateTracker.texture2D(true);
+    GlStateTracker.color(1.0F, 1.0F, 1.0F, 1.0F);
+    boolean distanceField = fontRenderer.isDistanceField();
+    if (distanceField) {
+      DistanceFieldShader.use();
+    }
+    // Draw all backgrounds and the low alpha text for occluded entities first
+    for (int i = first; i < size; i++) {
+      LabelMesh mesh = entries[i].mesh;
+      callList(entries[i], mesh.backgroundList(), mesh.backgroundDraws());
+    }
+    // Draw the full alpha text for non occluded entities
+    GlStateTracker.depth(true);
+    GlStateTracker.depthMask(true);
+    for (int i = first; i < size; i++) {
+      LabelMesh mesh = entries[i].mesh;
+      callList(entries[i], mesh.textList(), mesh.textDraws());
+    }
+    if (distanceField) {
+      DistanceFieldShader.release();
+    }
+    drawBadges(first);
+    // The lists bind their textures directly, bind the texture the state manager expects again
+    GlyphAtlas atlas = fontRenderer.atlas();
+    if (atlas != null) {
+      int texture = atlas.basePage().textureId();
+      GlStateTracker.bindTexture(texture);
+      Gl.backend().bindTextureDirect(texture);
+      LabelStats.increment(LabelStats.TEXTURE_BINDS);
+    }
+    GlStateTracker.lighting(true);
+    GlStateTracker.blend(false);
+    GlStateTracker.color(1.0F, 1.0F, 1.0F, 1.0F);
+    // Release the references so unloaded entities and their meshes can be collected
+    for (int i = 0; i < size; i++) {
+      entries[i].owner = null;
+      entries[i].text = null;
+      entries[i].mesh = null;
+      entries[i].badge = null;
+    }
+    FlightEvents.endLabelFrame(event, size - first, first, rebuilt);
+    size = 0;
+    LabelStats.stop(LabelStats.FLUSH_NANOS, start);
+  }
+
+  /**
+   * Method to emit the quads of a changed label into the batches of its entry
+   *
+   * @param entry The queued label
+   */
+  private static void prepare(Entry entry) {
+    entry.mesh.prepare(fontRenderer, entry.layout, entry.backgroundBatch, entry.textBatch,
+      entry.text, entry.offset, entry.sneaking, entry.parts);
+    entry.prepared = true;
+  }
+
+  /**
+   * Method to call a display list of a label at its transform
+   *
+   * @param entry The queued label
+   * @param list  The display list
+   * @param draws The amount of draw calls in the list, each of them binds its texture
+   */
+  private static void callList(Entry entry, int list, int draws) {
+    GlBackend backend = Gl.backend();
+    backend.pushMatrix();
+    entry.transform.store(MATRIX);
+    backend.multMatrix(MATRIX);
+    backend.callList(list);
+    backend.popMatrix();
+    LabelStats.add(LabelStats.DRAW_CALLS, draws);
+    LabelStats.add(LabelStats.TEXTURE_BINDS, draws);
+  }
+
+  /**
+   * Method to draw the badges of the labels within the label cap, labymod draws them in immediate
+   * mode, so the state is set again after every badge
+   *
+   * @param first The index of the nearest labels which are drawn
+   */
+  private static void drawBadges(int first) {
+    GlBackend backend = Gl.backend();
+    for (int i = first; i < size; i++) {
+      Entry entry = entries[i];
+      if (entry.badge == null || !LabelCulling.showsBadge(entry.distance)) {
+        continue;
+      }
+      GlStateTracker.depth(false);
+      GlStateTracker.depthMask(false);
+      backend.pushMatrix();
+      entry.transform.store(MATRIX);
+      backend.multMatrix(MATRIX);
+      entry.badge.renderBadge(-fontRenderer.stringWidthOf(entry.text) / 2 - 2 - 8, -0.5D, 8.0D,
+        8.0D, false);
+      backend.popMatrix();
+      LabelStats.increment(LabelStats.DRAW_CALLS);
+      // Foreign code ran, the tracked state is unknown
+      GlStateTracker.invalidate();
+    }
+  }
+
+  private static boolean isForge() {
+    try {
+      Class.forName("net.minecraftforge.client.MinecraftForgeClient", false,
+        LabelQueue.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Method to sort the queued labels by their distance in descending order, an insertion sort is
+   * used as the order barely changes between frames and it does not allocate
+   */
+  private static void sortFarToNear() {
+    for (int i = 1; i < size; i++) {
+      Entry entry = entries[i];
+      int j = i - 1;
+      while (j >= 0 && entries[j].distance < entry.distance) {
+        entries[j + 1] = entries[j];
+        j--;
+      }
+      entries[j + 1] = entry;
+    }
+  }
+
+  /**
+   * Emits the quads of the changed labels in a range of the queue, ranges are split until they are
+   * small enough, the workers only read the layouts which were resolved and prefetched on the
+   * render thread and the meshes and batches of their own entries
+   */
+  private static class PrepareTask extends RecursiveAction {
+
+    private final int from;
+    private final int to;
+
+    private PrepareTask(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > SPLIT_SIZE) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new PrepareTask(from, middle), new PrepareTask(middle, to));
+        return;
+      }
+      for (int i = from; i < to; i++) {
+        Entry entry = entries[i];
+        if (entry.layout != null) {
+          prepare(entry);
+        }
+      }
+    }
+  }
+
+  private static class Entry {
+
+    private final LabelTransform transform = new LabelTransform();
+    // Every entry owns its batches so labels can be prepared in parallel
+    private final GlyphBatch backgroundBatch = new GlyphBatch(0x800);
+    private final GlyphBatch textBatch = new GlyphBatch(0x800);
+    private Entity owner;
+    private int slot;
+    private String text;
+    private int offset;
+    private boolean sneaking;
+    private int level;
+    private int parts;
+    private LabyGroup badge;
+    private LabelMesh mesh;
+    private TextLayout layout;
+    private boolean prepared;
+    private double distance;
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import java.util.Arrays;
+
+/**
+ * Per frame counters of the label pipeline, the values of the last frames are kept to compute
+ * rolling averages and 99th percentiles, nothing is counted while the stats are disabled
+ */
+public final class LabelStats {
+
+  public static final int LABELS = 0;
+  public static final int CULLED = 1;
+  public static final int GLYPHS = 2;
+  public static final int DRAW_CALLS = 3;
+  public static final int TEXTURE_BINDS = 4;
+  public static final int RENDER_NAME_NANOS = 5;
+  public static final int FLUSH_NANOS = 6;
+  static final int METRIC_COUNT = 7;
+  private static final int WINDOW = 240;
+  private static final long[] CURRENT = new long[METRIC_COUNT];
+  private static final long[][] HISTORY = new long[METRIC_COUNT][WINDOW];
+  private static final long[] SORTED = new long[WINDOW];
+  private static int cursor;
+  private static int frames;
+  private static boolean enabled;
+  private static boolean partial;
+
+  private LabelStats() {
+  }
+
+  /**
+   * Method to enable or disable counting, the history is cleared when counting starts and the
+   * frame which is running at that moment is not kept
+   *
+   * @param enabled The wanted state
+   */
+  public static void setEnabled(boolean enabled) {
+    if (enabled && !LabelStats.enabled) {
+      Arrays.fill(CURRENT, 0);
+      cursor = 0;
+      frames = 0;
+      partial = true;
+    }
+    LabelStats.enabled = enabled;
+  }
+
+  /**
+   * Method to check if the stats are counted
+   *
+   * @return If the stats are enabled
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Method to add an amount to a counter of the current frame
+   *
+   * @param metric The counter, one of the constants of this class
+   * @param amount The amount which is added
+   */
+  public static void add(int metric, long amount) {
+    if (enabled) {
+      CURRENT[metric] += amount;
+    }
+  }
+
+  /**
+   * Method to add one to a counter of the current frame
+   *
+   * @param metric The counter, one of the constants of this class
+   */
+  public static void increment(int metric) {
+    if (enabled) {
+      CURRENT[metric]++;
+    }
+  }
+
+  /**
+   * Method to start timing a section
+   *
+   * @return The start time which is passed to {@link #stop}
+   */
+  public static long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Method to add the time since {@link #start} to a counter
+   *
+   * @param metric The counter which receives the nanoseconds
+   * @param start  The value returned by {@link #start}
+   */
+  public static void stop(int metric, long start) {
+    if (enabled && start != 0) {
+      CURRENT[metric] += System.nanoTime() - start;
+    }
+  }
+
+  /**
+   * Method to move the counters of the current frame into the history and start a new frame,
+   * called once per rendered frame by the first entity pass
+   */
+  static void nextFrame() {
+    if (!enabled) {
+      return;
+    }
+    if (partial) {
+      // The frame in which counting started was only counted in part
+      Arrays.fill(CURRENT, 0);
+      partial = false;
+      return;
+    }
+    for (int metric = 0; metric < METRIC_COUNT; metric++) {
+      HISTORY[metric][cursor] = CURRENT[metric];
+      CURRENT[metric] = 0;
+    }
+    cursor = (cursor + 1) % WINDOW;
+    frames = Math.min(frames + 1, WINDOW);
+  }
+
+  /**
+   * Method to return the value of a counter in the last finished frame
+   *
+   * @param metric The counter
+   * @return The value of the last frame
+   */
+  public static long last(int metric) {
+    return frames == 0 ? 0 : HISTORY[metric][(cursor + WINDOW - 1) % WINDOW];
+  }
+
+  /**
+   * Method to return the average of a counter over the kept frames
+   *
+   * @param metric The counter
+   * @return The rolling average
+   */
+  public static double average(int metric) {
+    if (frames == 0) {
+      return 0;
+    }
+    long sum = 0;
+    for (int i = 0; i < frames; i++) {
+      sum += HISTORY[metric][i];
+    }
+    return (double) sum / frames;
+  }
+
+  /**
+   * Method to return the 99th percentile of a counter over the kept frames
+   *
+   * @param metric The counter
+   * @return The value which 99 percent of the frames do not exceed
+   */
+  public static long percentile99(int metric) {
+    if (frames == 0) {
+      return 0;
+    }
+    System.arraycopy(HISTORY[metric], 0, SORTED, 0, frames);
+    Arrays.sort(SORTED, 0, frames);
+    return SORTED[(int) Math.ceil(frames * 0.99D) - 1];
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.FontRenderer;
+
+/**
+ * Debug overlay which shows the {@link LabelStats} of the last frame with their rolling averages
+ * and 99th percentiles
+ */
+public class LabelStatsOverlay {
+
+  private static final Minecraft MC = Minecraft.getMinecraft();
+  private static final String[] NAMES = {"Labels", "Culled", "Glyphs", "Draw calls",
+    "Texture binds", "renderName", "Flush"};
+  private static final int COLOR = 0xFFFFFF;
+  private static final StringBuilder LINE = new StringBuilder();
+
+  /**
+   * Method to draw the overlay, called while the ingame overlay is rendered
+   */
+  public static void render() {
+    if (!LabelStats.isEnabled() || MC.gameSettings.showDebugInfo) {
+      return;
+    }
+    FontRenderer fontRenderer = MC.fontRendererObj;
+    int y = 2;
+    fontRenderer.drawStringWithShadow("FancyTags (last / avg / p99)", 2, y, COLOR);
+    for (int metric = 0; metric < LabelStats.METRIC_COUNT; metric++) {
+      y += fontRenderer.FONT_HEIGHT;
+      boolean time = metric >= LabelStats.RENDER_NAME_NANOS;
+      LINE.setLength(0);
+      LINE.append(NAMES[metric]).append(": ");
+      append(LabelStats.last(metric), time);
+      LINE.append(" / ");
+      append(LabelStats.average(metric), time);
+      LINE.append(" / ");
+      append(LabelStats.percentile99(metric), time);
+      fontRenderer.drawStringWithShadow(LINE.toString(), 2, y, COLOR);
+    }
+    y += fontRenderer.FONT_HEIGHT;
+    LINE.setLength(0);
+    LINE.append("GL state: ").append(GlStateTracker.issuedChanges()).append(" issued, ")
+      .append(GlStateTracker.suppressedChanges()).append(" suppressed");
+    fontRenderer.drawStringWithShadow(LINE.toString(), 2, y, COLOR);
+  }
+
+  /**
+   * Method to append a value to the current line, times are shown in milliseconds
+   *
+   * @param value The value
+   * @param time  Defines if the value is a time in nanoseconds
+   */
+  private static void append(double value, boolean time) {
+    if (time) {
+      // Two decimals of a millisecond
+      LINE.append(Math.round(value / 10000.0D) / 100.0D).append("ms");
+    } else if (value == (long) value) {
+      LINE.append((long) value);
+    } else {
+      LINE.append(Math.round(value * 10.0D) / 10.0D);
+    }
+  }
+}
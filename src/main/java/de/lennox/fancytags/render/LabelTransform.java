@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Affine billboard transform of a label, it is either applied on the cpu so labels of different
+ * entities can share one vertex buffer or multiplied onto the gl matrix stack
+ */
+public class LabelTransform {
+
+  private static final float DEGREES_TO_RADIANS = (float) (Math.PI / 180.0D);
+  private float m00, m01, m02, m03;
+  private float m10, m11, m12, m13;
+  private float m20, m21, m22, m23;
+
+  /**
+   * Method to set this transform to the billboard of a label, this matches the transformation
+   * stack of {@link LivingLabelRenderer#prepare}
+   *
+   * @param x     The x position of the label
+   * @param y     The y position of the label
+   * @param z     The z position of the label
+   * @param yaw   The rotation around the y axis in degrees
+   * @param pitch The rotation around the x axis in degrees
+   * @param scale The scale of the label
+   */
+  public void billboard(double x, double y, double z, float yaw, float pitch, float scale) {
+    float sinYaw = (float) Math.sin(yaw * DEGREES_TO_RADIANS);
+    float cosYaw = (float) Math.cos(yaw * DEGREES_TO_RADIANS);
+    float sinPitch = (float) Math.sin(pitch * DEGREES_TO_RADIANS);
+    float cosPitch = (float) Math.cos(pitch * DEGREES_TO_RADIANS);
+    // Rotation around y, then around x, then scale(-scale, -scale, scale)
+    m00 = -scale * cosYaw;
+    m01 = -scale * sinYaw * sinPitch;
+    m02 = scale * sinYaw * cosPitch;
+    m03 = (float) x;
+    m10 = 0;
+    m11 = -scale * cosPitch;
+    m12 = -scale * sinPitch;
+    m13 = (float) y;
+    m20 = scale * sinYaw;
+    m21 = -scale * cosYaw * sinPitch;
+    m22 = scale * cosYaw * cosPitch;
+    m23 = (float) z;
+  }
+
+  /**
+   * Method to scale the transform in its local space
+   *
+   * @param x The scale on the x axis
+   * @param y The scale on the y axis
+   * @param z The scale on the z axis
+   */
+  public void scale(float x, float y, float z) {
+    m00 *= x;
+    m10 *= x;
+    m20 *= x;
+    m01 *= y;
+    m11 *= y;
+    m21 *= y;
+    m02 *= z;
+    m12 *= z;
+    m22 *= z;
+  }
+
+  /**
+   * Method to copy another transform into this one
+   *
+   * @param other The transform which will be copied
+   */
+  public void set(LabelTransform other) {
+    m00 = other.m00;
+    m01 = other.m01;
+    m02 = other.m02;
+    m03 = other.m03;
+    m10 = other.m10;
+    m11 = other.m11;
+    m12 = other.m12;
+    m13 = other.m13;
+    m20 = other.m20;
+    m21 = other.m21;
+    m22 = other.m22;
+    m23 = other.m23;
+  }
+
+  /**
+   * Method to transform the x component of a point on the label plane
+   *
+   * @param x The local x position
+   * @param y The local y position
+   * @return The transformed x position
+   */
+  public double transformX(double x, double y) {
+    return m00 * x + m01 * y + m03;
+  }
+
+  /**
+   * Method to transform the y component of a point on the label plane
+   *
+   * @param x The local x position
+   * @param y The local y position
+   * @return The transformed y position
+   */
+  public double transformY(double x, double y) {
+    return m10 * x + m11 * y + m13;
+  }
+
+  /**
+   * Method to transform the z component of a point on the label plane
+   *
+   * @param x The local x position
+   * @param y The local y position
+   * @return The transformed z position
+   */
+  public double transformZ(double x, double y) {
+    return m20 * x + m21 * y + m23;
+  }
+
+  /**
+   * Method to write this transform as a column major 4x4 matrix which can be multiplied onto the
+   * gl matrix stack
+   *
+   * @param buffer The buffer which receives the 16 values, it is flipped afterwards
+   */
+  public void store(FloatBuffer buffer) {
+    buffer.clear();
+    buffer.put(m00).put(m10).put(m20).put(0);
+    buffer.put(m01).put(m11).put(m21).put(0);
+    buffer.put(m02).put(m12).put(m22).put(0);
+    buffer.put(m03).put(m13).put(m23).put(1);
+    buffer.flip();
+  }
+
+  /**
+   * Method to return the squared distance of the label origin to the camera
+   *
+   * @return The squared distance to the camera
+   */
+  public double distanceSq() {
+    return m03 * m03 + m13 * m13 + m23 * m23;
+  }
+}
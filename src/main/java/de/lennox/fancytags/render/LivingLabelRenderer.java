@@ -20,6 +20,9 @@ package de.lennox.fancytags.render;
 
 import de.lennox.fancytags.render.font.FontRenderer;
 import de.lennox.fancytags.render.font.Fonts;
+import de.lennox.fancytags.render.gl.Gl;
+import de.lennox.fancytags.render.gl.GlBackend;
+import net.labymod.user.group.LabyGroup;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.Tessellator;
 import net.minecraft.client.renderer.WorldRenderer;
@@ -27,13 +30,13 @@ import net.minecraft.client.renderer.entity.RenderManager;
 import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
 import net.minecraft.entity.EntityLivingBase;
 
-import static net.minecraft.client.renderer.GlStateManager.*;
 import static org.lwjgl.opengl.GL11.*;
 
 public class LivingLabelRenderer<T extends EntityLivingBase> {
 
     private static final Minecraft MC = Minecraft.getMinecraft();
-    private static final FontRenderer FR = Fonts.interOf(72);
+    private static final float LABEL_SCALE = 0.02666667F;
+    private final LabelTransform transform = new LabelTransform();
 
     /**
      * Method to prepare label rendering
@@ -43,7 +46,7 @@ public class LivingLabelRenderer<T extends EntityLivingBase> {
      * @param y        The y position of the label
      * @param z        The z position of the label
      */
-    public void prepare(
+    private void prepare(
         T entityIn,
         double x,
         double y,
@@ -52,73 +55,189 @@ public class LivingLabelRenderer<T extends EntityLivingBase> {
         // Fix the player view
         float fixedPlayerView = MC.getRenderManager().playerViewX * (float) (Minecraft.getMinecraft().gameSettings.thirdPersonView == 2 ? -1 : 1);
         RenderManager renderManager = MC.getRenderManager();
-        pushMatrix();
+        GlBackend backend = Gl.backend();
+        backend.pushMatrix();
         // Translate to the position
-        translate((float) x, (float) y + entityIn.height + 0.5F - (entityIn.isChild() ? entityIn.height / 2.0F : 0.0F), (float) z);
+        backend.translate((float) x, (float) y + entityIn.height + 0.5F - (entityIn.isChild() ? entityIn.height / 2.0F : 0.0F), (float) z);
         // Rotate
-        glNormal3f(0.0F, 1.0F, 0.0F);
-        rotate(-renderManager.playerViewY, 0.0F, 1.0F, 0.0F);
-        rotate(fixedPlayerView, 1.0F, 0.0F, 0.0F);
+        backend.normal(0.0F, 1.0F, 0.0F);
+        backend.rotate(-renderManager.playerViewY, 0.0F, 1.0F, 0.0F);
+        backend.rotate(fixedPlayerView, 1.0F, 0.0F, 0.0F);
         // Scale down the tag
-        scale(-0.02666667F, -0.02666667F, 0.02666667F);
-        disableLighting();
-        depthMask(false);
-        disableDepth();
-        enableBlend();
-        tryBlendFuncSeparate(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ZERO);
+        backend.scale(-LABEL_SCALE, -LABEL_SCALE, LABEL_SCALE);
+        // Foreign code ran since the last label, the state has to be set once
+        GlStateTracker.invalidate();
+        GlStateTracker.lighting(false);
+        GlStateTracker.depthMask(false);
+        GlStateTracker.depth(false);
+        GlStateTracker.blend(true);
+        GlStateTracker.blendFunction(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ZERO);
     }
 
     /**
-     * Method to draw a label with the display name of the entity
+     * Method to render the label of an entity, the label is queued if the labels of the current
+     * frame are collected, otherwise it is drawn directly, labels which are culled by
+     * {@link LabelCulling} are skipped
      *
-     * @param entityIn The entity which the label will be drawn of
+     * @param entityIn The entity which the label will be drawn for
+     * @param x        The x position of the label
+     * @param y        The y position of the label
+     * @param z        The z position of the label
+     * @param label    The text of the label
+     * @param scale    The additional subtitle scale of the label which is applied like labymod
+     *                 scales subtitles, 0 if the label is not scaled
+     * @param sneaking Defines if the entity is sneaking, its label is drawn transparent
+     * @param slot     The slot of the label, its mesh is kept until the text of the slot changes
      */
-    public void renderLabel(T entityIn) {
-        // Get the display name of the entity
-        String str = entityIn.getDisplayName().getFormattedText();
-        int i = labelOffsetOf(entityIn);
-        float j = FR.stringWidthOf(str) / 2;
-        // Draw the label background
-        drawLabelBackground(j, i);
-        // Draw the label text
-        renderLabelText(i, str);
+    public void renderLabel(
+        T entityIn,
+        double x,
+        double y,
+        double z,
+        String label,
+        float scale,
+        boolean sneaking,
+        int slot
+    ) {
+        renderLabel(entityIn, x, y, z, label, scale, sneaking, slot, null);
     }
 
     /**
-     * Method to draw a label with custom text
+     * Method to render the label of an entity with the badge of its labymod group beside it, the
+     * badge is dropped with the label if it is culled or outside of the label cap and has its own
+     * distance in {@link LabelCulling}
      *
-     * @param entityIn The entity which owns the label
+     * @param entityIn The entity which the label will be drawn for
+     * @param x        The x position of the label
+     * @param y        The y position of the label
+     * @param z        The z position of the label
      * @param label    The text of the label
+     * @param scale    The additional subtitle scale of the label which is applied like labymod
+     *                 scales subtitles, 0 if the label is not scaled
+     * @param sneaking Defines if the entity is sneaking, its label is drawn transparent
+     * @param slot     The slot of the label, its mesh is kept until the text of the slot changes
+     * @param badge    The labymod group whose badge is drawn beside the label, null if there is none
      */
     public void renderLabel(
         T entityIn,
-        String label
+        double x,
+        double y,
+        double z,
+        String label,
+        float scale,
+        boolean sneaking,
+        int slot,
+        LabyGroup badge
+    ) {
+        double labelY = y + entityIn.height + 0.5F - (entityIn.isChild() ? entityIn.height / 2.0F : 0.0F);
+        int level = LabelCulling.levelOf(x, labelY, z);
+        // Skip labels outside of the view or too far away before any gl work is done
+        if (level == LabelCulling.HIDDEN) {
+            LabelStats.increment(LabelStats.CULLED);
+            return;
+        }
+        if (LabelQueue.isCollecting() && Fonts.current().isReady()) {
+            // Compute the same transformation as prepare on the cpu
+            float fixedPlayerView = MC.getRenderManager().playerViewX * (float) (MC.gameSettings.thirdPersonView == 2 ? -1 : 1);
+            transform.billboard(x, labelY, z, -MC.getRenderManager().playerViewY, fixedPlayerView, LABEL_SCALE);
+            if (scale != 0) {
+                transform.scale(-scale, -scale, scale);
+            }
+            LabelQueue.add(entityIn, slot, transform, label, sneaking ? 0 : labelOffsetOf(entityIn), sneaking, level, badge);
+            return;
+        }
+        LabelStats.increment(LabelStats.LABELS);
+        prepare(entityIn, x, y, z);
+        if (scale != 0) {
+            Gl.backend().scale(-scale, -scale, scale);
+        }
+        int parts = LabelCulling.partsOf(level);
+        if (sneaking) {
+            renderSneakingLabel(label, parts);
+        } else {
+            renderLabel(entityIn, label, parts);
+        }
+        // Draw the badge beside the label if it is near enough
+        if (badge != null && LabelCulling.showsBadge(x * x + labelY * labelY + z * z)) {
+            GlStateTracker.depth(false);
+            GlStateTracker.depthMask(false);
+            badge.renderBadge(-Fonts.current().stringWidthOf(label) / 2 - 2 - 8, -0.5D, 8.0D, 8.0D, false);
+        }
+        finish();
+    }
+
+    /**
+     * Method to draw the parts of a label with custom text
+     *
+     * @param entityIn The entity which owns the label
+     * @param label    The text of the label
+     * @param parts    The parts of the label, see {@link LabelCulling#partsOf}
+     */
+    private void renderLabel(
+        T entityIn,
+        String label,
+        int parts
     ) {
         // Get the display name of the entity
         int i = labelOffsetOf(entityIn);
-        float j = FR.stringWidthOf(label) / 2;
-        // Draw the label background
-        drawLabelBackground(j, i);
+        float j = Fonts.current().stringWidthOf(label) / 2;
+        // Draw the label background if it is part of the label
+        if ((parts & LabelCulling.BACKGROUND) != 0) {
+            drawLabelBackground(j, i);
+        }
         // Draw the label text
-        renderLabelText(i, label);
+        renderLabelText(i, j, label, parts);
+    }
+
+    /**
+     * Method to draw the parts of a transparent label for sneaking entities
+     *
+     * @param label The text of the label
+     * @param parts The parts of the label, see {@link LabelCulling#partsOf}
+     */
+    private void renderSneakingLabel(
+        String label,
+        int parts
+    ) {
+        FontRenderer fontRenderer = Fonts.current();
+        float j = fontRenderer.stringWidthOf(label) / 2;
+        // Draw the label background if it is part of the label
+        if ((parts & LabelCulling.BACKGROUND) != 0) {
+            drawLabelBackground(j, 0);
+        }
+        // Draw the text
+        GlStateTracker.depth(true);
+        GlStateTracker.depthMask(true);
+        fontRenderer.drawString(label, -j, -1, 553648127);
     }
 
     /**
      * Method to draw the text of the labels
      *
-     * @param y    The y offset of the label
-     * @param text The text which will be drawn
+     * @param y         The y offset of the label
+     * @param halfWidth The half width of the text
+     * @param text      The text which will be drawn
+     * @param parts     The parts of the label, see {@link LabelCulling#partsOf}
      */
     private void renderLabelText(
         float y,
-        String text
+        float halfWidth,
+        String text,
+        int parts
     ) {
-        // Draw the low alpha text for occluded entities
-        FR.drawString(text, -FR.stringWidthOf(text) / 2, y - 1, 553648127);
-        enableDepth();
-        depthMask(true);
+        FontRenderer fontRenderer = Fonts.current();
+        // Draw the low alpha text for occluded entities if it is part of the label
+        if ((parts & LabelCulling.SEE_THROUGH) != 0) {
+            fontRenderer.drawString(text, -halfWidth, y - 1, 553648127);
+        }
+        GlStateTracker.depth(true);
+        GlStateTracker.depthMask(true);
         // Draw the full alpha text for non occluded entities
-        FR.drawString(text, -FR.stringWidthOf(text) / 2, y - 1, -1);
+        if ((parts & LabelCulling.SHADOW) != 0) {
+            fontRenderer.drawStringWithShadow(text, -halfWidth, y - 1, -1);
+        } else {
+            fontRenderer.drawString(text, -halfWidth, y - 1, -1);
+        }
     }
 
     /**
@@ -128,8 +247,7 @@ public class LivingLabelRenderer<T extends EntityLivingBase> {
      * @return The offset which is required
      */
     private int labelOffsetOf(T entity) {
-        return entity.getDisplayName().getFormattedText()
-            .equals("deadmau5") ? -10 : 0;
+        return LabelModelCache.modelOf(entity).offset();
     }
 
     /**
@@ -142,26 +260,31 @@ public class LivingLabelRenderer<T extends EntityLivingBase> {
         float x,
         float y
     ) {
-        Tessellator tessellator = Tessellator.getInstance();
-        WorldRenderer worldrenderer = tessellator.getWorldRenderer();
-        disableTexture2D();
+        WorldRenderer worldrenderer = Tessellator.getInstance().getWorldRenderer();
+        // The background grows with the configured font size
+        double bottom = Fonts.current().lineHeight() - 0.5 + y;
+        GlStateTracker.texture2D(false);
         worldrenderer.begin(7, DefaultVertexFormats.POSITION_COLOR);
         worldrenderer.pos(-x - 1, -1.5 + y, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
-        worldrenderer.pos(-x - 1, 8.5 + y, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
-        worldrenderer.pos(x + 1, 8.5 + y, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
+        worldrenderer.pos(-x - 1, bottom, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
+        worldrenderer.pos(x + 1, bottom, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
         worldrenderer.pos(x + 1, -1.5 + y, 0.0D).color(0.0F, 0.0F, 0.0F, 0.25F).endVertex();
-        tessellator.draw();
-        enableTexture2D();
+        worldrenderer.finishDrawing();
+        Gl.backend().draw(worldrenderer);
+        LabelStats.increment(LabelStats.DRAW_CALLS);
+        GlStateTracker.texture2D(true);
     }
 
     /**
      * Method to finish the label rendering
      */
-    public void finish() {
-        enableLighting();
-        disableBlend();
-        color(1.0F, 1.0F, 1.0F, 1.0F);
-        popMatrix();
+    private void finish() {
+        // Badges are drawn by labymod between prepare and finish
+        GlStateTracker.invalidate();
+        GlStateTracker.lighting(true);
+        GlStateTracker.blend(false);
+        GlStateTracker.color(1.0F, 1.0F, 1.0F, 1.0F);
+        Gl.backend().popMatrix();
     }
 
 }
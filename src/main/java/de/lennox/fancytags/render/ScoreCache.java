@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.minecraft.scoreboard.Score;
+import net.minecraft.scoreboard.ScoreObjective;
+import net.minecraft.scoreboard.Scoreboard;
+
+/**
+ * Caches the formatted below name score lines of players, a line is only rebuilt after the
+ * scoreboard packets changed the score of its player, the objective or the display slot, the line
+ * of a player is dropped once the player is unloaded and the cache is cleared whenever the world
+ * scoreboard is replaced
+ */
+public final class ScoreCache {
+
+  private static final int BELOW_NAME_SLOT = 2;
+  private static final Map<String, String> LINES = new HashMap<>();
+  private static Scoreboard scoreboard;
+  private static ScoreObjective objective;
+  private static boolean objectiveKnown;
+
+  private ScoreCache() {
+  }
+
+  /**
+   * Method to return the below name score line of a player, has to be called on the client thread
+   *
+   * @param scoreboard The scoreboard of the world of the player
+   * @param name       The name of the player
+   * @return The score and the display name of the objective or null if no objective is displayed
+   * below names
+   */
+  public static String lineOf(Scoreboard scoreboard, String name) {
+    if (scoreboard != ScoreCache.scoreboard) {
+      ScoreCache.scoreboard = scoreboard;
+      invalidateAll();
+    }
+    if (!objectiveKnown) {
+      objective = scoreboard.getObjectiveInDisplaySlot(BELOW_NAME_SLOT);
+      objectiveKnown = true;
+    }
+    if (objective == null) {
+      return null;
+    }
+    String line = LINES.get(name);
+    if (line == null) {
+      Score score = scoreboard.getValueFromObjective(name, objective);
+      line = score.getScorePoints() + " " + objective.getDisplayName();
+      LINES.put(name, line);
+    }
+    return line;
+  }
+
+  /**
+   * Method to drop the line of a player whose score changed or was removed or who was unloaded
+   *
+   * @param name The name of the player
+   */
+  public static void invalidate(String name) {
+    LINES.remove(name);
+  }
+
+  /**
+   * Method to drop all lines and the objective, called if an objective or a display slot changed
+   */
+  public static void invalidateAll() {
+    LINES.clear();
+    objective = null;
+    objectiveKnown = false;
+  }
+}
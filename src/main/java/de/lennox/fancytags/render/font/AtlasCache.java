@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Stores the rasterized base page and the kerning of a {@link GlyphAtlas} on disk, later starts
+ * map the page and upload it without loading the font, entries are keyed by a hash of the font
+ * file and its settings and are rebuilt if the key does not match
+ */
+public class AtlasCache {
+
+  private static final int MAGIC = 0x46544143;
+  // Increase whenever the file format or the rasterization changes
+  private static final int VERSION = 3;
+  private static final int KEY_LENGTH = 20;
+  private static final int HEADER_BYTES = 8 + KEY_LENGTH + 8 * 4;
+  private static final int GLYPH_BYTES = 20;
+  private static final int KERNING_BYTES = 8;
+  private final File directory;
+
+  /**
+   * Constructs an {@link AtlasCache}
+   *
+   * @param directory The directory which contains the cache files
+   */
+  public AtlasCache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Method to compute the cache key of a font
+   *
+   * @param fontBytes         The bytes of the font file
+   * @param size              The size of the font
+   * @param style             The awt style of the font
+   * @param antiAlias         The anti alias state of the font
+   * @param fractionalMetrics The fractional metrics state of the font
+   * @param distanceField     Defines if the atlas stores distance fields
+   * @return The key of the font
+   */
+  public static byte[] keyOf(byte[] fontBytes, int size, int style, boolean antiAlias,
+    boolean fractionalMetrics, boolean distanceField) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      digest.update(fontBytes);
+      digest.update(ByteBuffer.allocate(24).putInt(VERSION).putInt(size).putInt(style)
+        .putInt(antiAlias ? 1 : 0).putInt(fractionalMetrics ? 1 : 0)
+        .putInt(distanceField ? DistanceField.SPREAD : 0).array());
+      return digest.digest();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Method to read an atlas from the cache
+   *
+   * @param name              The name of the cache entry
+   * @param key               The key of the font
+   * @param rasterizerFactory The factory which creates the rasterizer for glyphs outside of the
+   *                          base page
+   * @param memoryCap         The memory cap of the atlas
+   * @param distanceField     Defines if the atlas stores distance fields
+   * @return The atlas or null if there is no entry or the entry is stale
+   */
+  public GlyphAtlas read(String name, byte[] key, Supplier<GlyphRasterizer> rasterizerFactory,
+    long memoryCap, boolean distanceField) {
+    File file = fileOf(name);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+      FileChannel channel = randomAccessFile.getChannel()) {
+      // The header is read normally and checked before anything is mapped
+      ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+      if (header == null || header.getInt() != MAGIC || header.getInt() != VERSION) {
+        return null;
+      }
+      byte[] storedKey = new byte[KEY_LENGTH];
+      header.get(storedKey);
+      if (!Arrays.equals(key, storedKey)) {
+        return null;
+      }
+      int pageWidth = header.getInt();
+      int pageHeight = header.getInt();
+      int height = header.getInt();
+      int solidX = header.getInt();
+      int solidY = header.getInt();
+      int segmentCount = header.getInt();
+      int glyphCount = header.getInt();
+      int kerningCount = header.getInt();
+      int tableBytes = segmentCount * 12 + glyphCount * GLYPH_BYTES
+        + kerningCount * KERNING_BYTES;
+      int pixelCount = pageWidth * pageHeight;
+      if (channel.size() != HEADER_BYTES + tableBytes + pixelCount) {
+        return null;
+      }
+      ByteBuffer table = readFully(channel, HEADER_BYTES, tableBytes);
+      if (table == null) {
+        return null;
+      }
+      int[] skyline = new int[segmentCount * 3];
+      for (int i = 0; i < skyline.length; i++) {
+        skyline[i] = table.getInt();
+      }
+      int[] codePoints = new int[glyphCount];
+      FontCharacter[] characters = new FontCharacter[glyphCount];
+      for (int i = 0; i < glyphCount; i++) {
+        codePoints[i] = table.getInt();
+        FontCharacter fontCharacter = characters[i] = new FontCharacter();
+        fontCharacter.x = table.getInt();
+        fontCharacter.y = table.getInt();
+        fontCharacter.width = table.getFloat();
+        fontCharacter.height = table.getFloat();
+      }
+      KerningTable kerning = new KerningTable(kerningCount);
+      for (int i = 0; i < kerningCount; i++) {
+        int packedPair = table.getInt();
+        kerning.put(packedPair >>> 16, packedPair & 0xFFFF, table.getFloat());
+      }
+      // The pixels are stored in the texture format, the mapping is uploaded as it is
+      MappedByteBuffer pixels = channel.map(FileChannel.MapMode.READ_ONLY,
+        HEADER_BYTES + tableBytes, pixelCount);
+      AtlasPage basePage = new AtlasPage(pageWidth, pageHeight);
+      basePage.restore(skyline);
+      return new GlyphAtlas(rasterizerFactory, height, memoryCap, distanceField, basePage,
+        solidX, solidY, codePoints, characters, pixels, kerning);
+    } catch (IOException | RuntimeException e) {
+      // A broken entry is rebuilt like a stale one
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * Method to write the base page of a freshly rasterized atlas to the cache, has to be called
+   * before the atlas is uploaded
+   *
+   * @param name  The name of the cache entry
+   * @param key   The key of the font
+   * @param atlas The atlas which will be stored
+   */
+  public void write(String name, byte[] key, GlyphAtlas atlas) {
+    ByteBuffer pixels = atlas.basePixels();
+    if (pixels == null) {
+      return;
+    }
+    AtlasPage page = atlas.basePage();
+    int[] skyline = page.skyline();
+    int glyphCount = page.glyphCount();
+    KerningTable kerning = atlas.kerning();
+    int[] kerningPairs = kerning.packedPairs();
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + skyline.length * 4
+      + glyphCount * GLYPH_BYTES + kerningPairs.length * KERNING_BYTES)
+      .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC).putInt(VERSION).put(key);
+    buffer.putInt(page.width()).putInt(page.height()).putInt(atlas.height())
+      .putInt(atlas.solidX()).putInt(atlas.solidY()).putInt(skyline.length / 3)
+      .putInt(glyphCount).putInt(kerningPairs.length);
+    for (int value : skyline) {
+      buffer.putInt(value);
+    }
+    for (int i = 0; i < glyphCount; i++) {
+      int codePoint = page.codePointAt(i);
+      FontCharacter fontCharacter = atlas.glyphOf(codePoint);
+      buffer.putInt(codePoint).putInt(fontCharacter.x).putInt(fontCharacter.y)
+        .putFloat(fontCharacter.width).putFloat(fontCharacter.height);
+    }
+    for (int packedPair : kerningPairs) {
+      buffer.putInt(packedPair).putFloat(kerning.valueOf(packedPair));
+    }
+    buffer.flip();
+    // Write a view of the pixels so the atlas can still upload them
+    ByteBuffer pixelView = pixels.duplicate();
+    File file = fileOf(name);
+    File temporary = new File(directory, file.getName() + ".tmp");
+    try {
+      Files.createDirectories(directory.toPath());
+      try (RandomAccessFile randomAccessFile = new RandomAccessFile(temporary, "rw");
+        FileChannel channel = randomAccessFile.getChannel()) {
+        channel.truncate(0);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        while (pixelView.hasRemaining()) {
+          channel.write(pixelView);
+        }
+      }
+      // Replace the old entry at once so a crash never leaves half a file behind
+      Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Method to read a region of a file into a heap buffer
+   *
+   * @param channel  The channel of the file
+   * @param position The start of the region
+   * @param length   The length of the region
+   * @return The little endian buffer or null if the file ended before the region
+   * @throws IOException If the file could not be read
+   */
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+    throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        return null;
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private File fileOf(String name) {
+    return new File(directory, name + ".atlas");
+  }
+}
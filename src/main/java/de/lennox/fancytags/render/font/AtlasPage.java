@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import de.lennox.fancytags.jfr.FlightEvents;
+import de.lennox.fancytags.render.GlStateTracker;
+import de.lennox.fancytags.render.gl.Gl;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.lwjgl.BufferUtils;
+
+/**
+ * A single alpha texture of a {@link GlyphAtlas}, glyph cells are packed with a skyline packer
+ * which places every cell at the lowest position it fits
+ */
+public class AtlasPage {
+
+  // Empty texels right of and below every cell, enough to keep linear filtering from bleeding
+  static final int GAP = 2;
+  private static ByteBuffer uploadBuffer = BufferUtils.createByteBuffer(0);
+  private final int width;
+  private final int height;
+  private int textureId = -1;
+  private int[] codePoints;
+  private int glyphCount;
+  // The skyline as segments which each have a start, a top and a width
+  private int[] skyline;
+  private int segmentCount;
+  long lastUsed;
+
+  /**
+   * Constructs an {@link AtlasPage}, its texture is allocated separately so glyphs can be packed
+   * off the render thread
+   *
+   * @param width  The width of the page
+   * @param height The height of the page
+   */
+  AtlasPage(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.codePoints = new int[64];
+    this.skyline = new int[]{0, 0, width};
+    this.segmentCount = 1;
+  }
+
+  /**
+   * Method to allocate the texture of this page, has to be called on the render thread, the
+   * sampler settings are set once here
+   *
+   * @param linear Defines if the texture is sampled with linear filtering
+   */
+  void allocateTexture(boolean linear) {
+    textureId = Gl.backend().createAlphaTexture(width, height, linear);
+    GlStateTracker.invalidateTexture();
+  }
+
+  /**
+   * Method to find space for a glyph cell on this page, the cell is placed at the lowest position
+   * of the skyline and the leftmost one if there are multiple
+   *
+   * @param width  The width of the cell
+   * @param height The height of the cell
+   * @param out    The character which receives the position of the cell
+   * @return If the cell fits on this page
+   */
+  boolean allocate(int width, int height, FontCharacter out) {
+    int paddedWidth = width + GAP;
+    int paddedHeight = height + GAP;
+    int bestSegment = -1;
+    int bestY = Integer.MAX_VALUE;
+    for (int segment = 0; segment < segmentCount; segment++) {
+      int y = fitOf(segment, paddedWidth);
+      if (y >= 0 && y + paddedHeight <= this.height && y < bestY) {
+        bestSegment = segment;
+        bestY = y;
+      }
+    }
+    if (bestSegment == -1) {
+      return false;
+    }
+    out.x = skyline[bestSegment * 3];
+    out.y = bestY;
+    raise(bestSegment, out.x, bestY + paddedHeight, paddedWidth);
+    return true;
+  }
+
+  /**
+   * Method to find the y position a cell would be placed at if it starts at a segment
+   *
+   * @param segment The segment which the cell starts at
+   * @param width   The width of the cell
+   * @return The y position or -1 if the cell would leave the page
+   */
+  private int fitOf(int segment, int width) {
+    int x = skyline[segment * 3];
+    if (x + width > this.width) {
+      return -1;
+    }
+    int y = 0;
+    int remaining = width;
+    // The cell rests on the highest segment below it
+    while (remaining > 0) {
+      y = Math.max(y, skyline[segment * 3 + 1]);
+      remaining -= skyline[segment * 3 + 2];
+      segment++;
+    }
+    return y;
+  }
+
+  /**
+   * Method to insert the top of a placed cell into the skyline and shrink or remove the segments
+   * below it
+   *
+   * @param segment The segment the cell starts at
+   * @param x       The x position of the cell
+   * @param top     The top of the cell in the skyline
+   * @param width   The width of the cell
+   */
+  private void raise(int segment, int x, int top, int width) {
+    if ((segmentCount + 1) * 3 > skyline.length) {
+      skyline = Arrays.copyOf(skyline, skyline.length * 2);
+    }
+    System.arraycopy(skyline, segment * 3, skyline, segment * 3 + 3,
+      (segmentCount - segment) * 3);
+    skyline[segment * 3] = x;
+    skyline[segment * 3 + 1] = top;
+    skyline[segment * 3 + 2] = width;
+    segmentCount++;
+    int end = x + width;
+    int next = segment + 1;
+    while (next < segmentCount && skyline[next * 3] < end) {
+      int segmentEnd = skyline[next * 3] + skyline[next * 3 + 2];
+      if (segmentEnd <= end) {
+        remove(next);
+      } else {
+        skyline[next * 3 + 2] = segmentEnd - end;
+        skyline[next * 3] = end;
+        break;
+      }
+    }
+    // Merge neighbours of the same height
+    for (int i = Math.max(segment - 1, 0); i < Math.min(segment + 1, segmentCount - 1); ) {
+      if (skyline[i * 3 + 1] == skyline[(i + 1) * 3 + 1]) {
+        skyline[i * 3 + 2] += skyline[(i + 1) * 3 + 2];
+        remove(i + 1);
+      } else {
+        i++;
+      }
+    }
+  }
+
+  private void remove(int segment) {
+    System.arraycopy(skyline, segment * 3 + 3, skyline, segment * 3,
+      (segmentCount - segment - 1) * 3);
+    segmentCount--;
+  }
+
+  /**
+   * Method to restore the skyline of a page which was read from the cache
+   *
+   * @param skyline The segments of the skyline as start, top and width triples
+   */
+  void restore(int[] skyline) {
+    this.skyline = skyline.clone();
+    this.segmentCount = skyline.length / 3;
+  }
+
+  /**
+   * Method to return the skyline of this page so it can be cached
+   *
+   * @return The segments of the skyline as start, top and width triples
+   */
+  int[] skyline() {
+    return Arrays.copyOf(skyline, segmentCount * 3);
+  }
+
+  /**
+   * Method to register a glyph which was placed on this page
+   *
+   * @param codePoint The code point of the glyph
+   * @param character The character of the glyph
+   */
+  void add(int codePoint, FontCharacter character) {
+    if (glyphCount == codePoints.length) {
+      codePoints = Arrays.copyOf(codePoints, glyphCount * 2);
+    }
+    codePoints[glyphCount++] = codePoint;
+    character.page = this;
+    character.u0 = character.x / (float) width;
+    character.v0 = character.y / (float) height;
+    character.u1 = (character.x + character.width) / width;
+    character.v1 = (character.y + character.height) / height;
+  }
+
+  /**
+   * Method to upload the alpha of an image to a region of this page
+   *
+   * @param image The image which will be uploaded
+   * @param x     The x position of the region
+   * @param y     The y position of the region
+   */
+  void upload(BufferedImage image, int x, int y) {
+    int imageWidth = image.getWidth();
+    int imageHeight = image.getHeight();
+    if (uploadBuffer.capacity() < imageWidth * imageHeight) {
+      uploadBuffer = BufferUtils.createByteBuffer(imageWidth * imageHeight);
+    }
+    uploadBuffer.clear();
+    alphaOf(image, uploadBuffer);
+    uploadBuffer.flip();
+    upload(uploadBuffer, x, y, imageWidth, imageHeight);
+  }
+
+  /**
+   * Method to upload the alpha of the whole page at once
+   *
+   * @param pixels The alpha of every texel of the page
+   */
+  void upload(ByteBuffer pixels) {
+    upload(pixels, 0, 0, width, height);
+  }
+
+  private void upload(ByteBuffer pixels, int x, int y, int width, int height) {
+    Object event = FlightEvents.beginTextureUpload();
+    Gl.backend().uploadAlpha(textureId, x, y, width, height, pixels);
+    // The next draw has to bind its page again
+    GlStateTracker.invalidateTexture();
+    FlightEvents.endTextureUpload(event, textureId, width, height, (long) width * height);
+  }
+
+  /**
+   * Method to write the alpha of every pixel of an image into a buffer
+   *
+   * @param image The argb image
+   * @param out   The buffer which receives one byte per pixel
+   */
+  static void alphaOf(BufferedImage image, ByteBuffer out) {
+    int[] argb = GlyphAtlas.pixelsOf(image);
+    for (int pixel : argb) {
+      out.put((byte) (pixel >>> 24));
+    }
+  }
+
+  /**
+   * Method to release the texture of this page
+   */
+  void delete() {
+    Gl.backend().deleteTexture(textureId);
+  }
+
+  int codePointAt(int index) {
+    return codePoints[index];
+  }
+
+  int glyphCount() {
+    return glyphCount;
+  }
+
+  /**
+   * Method to return the gl texture of this page
+   *
+   * @return The id of the texture
+   */
+  public int textureId() {
+    return textureId;
+  }
+
+  /**
+   * Method to return the width of this page
+   *
+   * @return The width of the page
+   */
+  public int width() {
+    return width;
+  }
+
+  /**
+   * Method to return the height of this page
+   *
+   * @return The height of the page
+   */
+  public int height() {
+    return height;
+  }
+
+  /**
+   * Method to return the memory this page uses on the gpu
+   *
+   * @return The size of the texture in bytes
+   */
+  public long byteSize() {
+    return (long) width * height;
+  }
+}
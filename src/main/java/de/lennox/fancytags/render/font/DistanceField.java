@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+/**
+ * Converts rasterized glyphs into signed distance fields, the distance to the outline of the glyph
+ * is stored in the alpha channel so a shader can draw sharp edges at any scale
+ */
+final class DistanceField {
+
+  static final int SPREAD = 4;
+  private static final double INFINITY = 1e20;
+
+  private DistanceField() {
+  }
+
+  /**
+   * Method to replace the coverage of white glyphs with their signed distance, 0.5 is the outline
+   * and values above are inside of the glyph
+   *
+   * @param argb   The pixels which will be converted
+   * @param width  The width of the pixels
+   * @param height The height of the pixels
+   */
+  static void encode(int[] argb, int width, int height) {
+    double[] outside = squaredDistancesOf(argb, width, height, true);
+    double[] inside = squaredDistancesOf(argb, width, height, false);
+    for (int i = 0; i < argb.length; i++) {
+      // The outline lies between the last inside and the first outside pixel
+      double distance = inside[i] > 0 ? Math.sqrt(inside[i]) - 0.5D
+        : 0.5D - Math.sqrt(outside[i]);
+      double value = 0.5D + distance / (2 * SPREAD);
+      int alpha = (int) (Math.max(0, Math.min(1, value)) * 255 + 0.5D);
+      argb[i] = alpha << 24 | 0xFFFFFF;
+    }
+  }
+
+  /**
+   * Method to compute the squared euclidean distance of every pixel to the nearest pixel of a
+   * kind, the transform runs over all columns and then over all rows
+   *
+   * @param argb     The pixels
+   * @param width    The width of the pixels
+   * @param height   The height of the pixels
+   * @param toInside Defines if the distance to inside pixels or to outside pixels is computed
+   * @return The squared distances
+   */
+  private static double[] squaredDistancesOf(int[] argb, int width, int height,
+    boolean toInside) {
+    double[] grid = new double[argb.length];
+    for (int i = 0; i < argb.length; i++) {
+      boolean inside = argb[i] >>> 24 >= 128;
+      grid[i] = inside == toInside ? 0 : INFINITY;
+    }
+    int length = Math.max(width, height);
+    double[] row = new double[length];
+    double[] distances = new double[length];
+    int[] parabolas = new int[length];
+    double[] bounds = new double[length + 1];
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        row[y] = grid[y * width + x];
+      }
+      transform(row, height, distances, parabolas, bounds);
+      for (int y = 0; y < height; y++) {
+        grid[y * width + x] = distances[y];
+      }
+    }
+    for (int y = 0; y < height; y++) {
+      System.arraycopy(grid, y * width, row, 0, width);
+      transform(row, width, distances, parabolas, bounds);
+      System.arraycopy(distances, 0, grid, y * width, width);
+    }
+    return grid;
+  }
+
+  /**
+   * Method to compute the one dimensional distance transform by building the lower envelope of the
+   * parabolas of all pixels
+   *
+   * @param values    The squared distances before this pass
+   * @param length    The amount of values
+   * @param out       The squared distances after this pass
+   * @param parabolas The pixels whose parabolas form the envelope
+   * @param bounds    The ranges in which the parabolas are the lowest
+   */
+  private static void transform(double[] values, int length, double[] out, int[] parabolas,
+    double[] bounds) {
+    int k = 0;
+    parabolas[0] = 0;
+    bounds[0] = -INFINITY;
+    bounds[1] = INFINITY;
+    for (int q = 1; q < length; q++) {
+      double intersection = intersectionOf(values, parabolas[k], q);
+      // Remove the parabolas which are hidden by the new one
+      while (intersection <= bounds[k]) {
+        k--;
+        intersection = intersectionOf(values, parabolas[k], q);
+      }
+      k++;
+      parabolas[k] = q;
+      bounds[k] = intersection;
+      bounds[k + 1] = INFINITY;
+    }
+    k = 0;
+    for (int q = 0; q < length; q++) {
+      while (bounds[k + 1] < q) {
+        k++;
+      }
+      int p = parabolas[k];
+      out[q] = (q - p) * (double) (q - p) + values[p];
+    }
+  }
+
+  private static double intersectionOf(double[] values, int p, int q) {
+    return (values[q] + q * q - values[p] - p * p) / (2 * q - 2 * p);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import de.lennox.fancytags.render.GlStateTracker;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import net.minecraft.client.renderer.OpenGlHelper;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Shader which draws glyphs of a distance field atlas, the edge is smoothed over one screen pixel
+ * so text stays sharp at every scale
+ */
+public final class DistanceFieldShader {
+
+  private static final String VERTEX_SOURCE = "#version 120\n"
+    + "void main() {\n"
+    + "  gl_Position = ftransform();\n"
+    + "  gl_TexCoord[0] = gl_MultiTexCoord0;\n"
+    + "  gl_FrontColor = gl_Color;\n"
+    + "}\n";
+  private static final String FRAGMENT_SOURCE = "#version 120\n"
+    + "uniform sampler2D atlas;\n"
+    + "void main() {\n"
+    + "  float distance = texture2D(atlas, gl_TexCoord[0].st).a;\n"
+    + "  float width = fwidth(distance) * 0.7;\n"
+    + "  float alpha = smoothstep(0.5 - width, 0.5 + width, distance);\n"
+    + "  gl_FragColor = vec4(gl_Color.rgb, gl_Color.a * alpha);\n"
+    + "}\n";
+  private static int program = -1;
+
+  private DistanceFieldShader() {
+  }
+
+  /**
+   * Method to check if distance field atlases can be drawn, the shader is compiled on the first
+   * call which has to be on the render thread
+   *
+   * @return If the shader is available
+   */
+  public static boolean isSupported() {
+    if (program == -1) {
+      program = OpenGlHelper.shadersSupported ? compile() : 0;
+    }
+    return program != 0;
+  }
+
+  /**
+   * Method to draw with the shader until {@link #release} is called
+   */
+  public static void use() {
+    GlStateTracker.useProgram(program);
+  }
+
+  /**
+   * Method to switch back to the fixed function pipeline
+   */
+  public static void release() {
+    GlStateTracker.useProgram(0);
+  }
+
+  private static int compile() {
+    int vertexShader = shaderOf(OpenGlHelper.GL_VERTEX_SHADER, VERTEX_SOURCE);
+    int fragmentShader = shaderOf(OpenGlHelper.GL_FRAGMENT_SHADER, FRAGMENT_SOURCE);
+    if (vertexShader == 0 || fragmentShader == 0) {
+      return 0;
+    }
+    int program = OpenGlHelper.glCreateProgram();
+    OpenGlHelper.glAttachShader(program, vertexShader);
+    OpenGlHelper.glAttachShader(program, fragmentShader);
+    OpenGlHelper.glLinkProgram(program);
+    // The shaders are kept alive by the program
+    OpenGlHelper.glDeleteShader(vertexShader);
+    OpenGlHelper.glDeleteShader(fragmentShader);
+    if (OpenGlHelper.glGetProgrami(program, OpenGlHelper.GL_LINK_STATUS) == GL11.GL_FALSE) {
+      System.err.println(OpenGlHelper.glGetProgramInfoLog(program, 1024));
+      OpenGlHelper.glDeleteProgram(program);
+      return 0;
+    }
+    // The atlas is always bound to the first texture unit
+    OpenGlHelper.glUseProgram(program);
+    OpenGlHelper.glUniform1i(OpenGlHelper.glGetUniformLocation(program, "atlas"), 0);
+    OpenGlHelper.glUseProgram(0);
+    return program;
+  }
+
+  private static int shaderOf(int type, String source) {
+    byte[] bytes = source.getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer buffer = BufferUtils.createByteBuffer(bytes.length);
+    buffer.put(bytes).flip();
+    int shader = OpenGlHelper.glCreateShader(type);
+    OpenGlHelper.glShaderSource(shader, buffer);
+    OpenGlHelper.glCompileShader(shader);
+    if (OpenGlHelper.glGetShaderi(shader, OpenGlHelper.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
+      System.err.println(OpenGlHelper.glGetShaderInfoLog(shader, 1024));
+      OpenGlHelper.glDeleteShader(shader);
+      return 0;
+    }
+    return shader;
+  }
+}
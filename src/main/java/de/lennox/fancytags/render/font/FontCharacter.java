@@ -24,4 +24,9 @@ public class FontCharacter {
   public float height;
   public int x;
   public int y;
+  public float u0;
+  public float v0;
+  public float u1;
+  public float v1;
+  AtlasPage page;
 }
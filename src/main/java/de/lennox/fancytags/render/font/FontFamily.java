@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import de.lennox.fancytags.jfr.FlightEvents;
+import java.awt.Font;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A font family of the {@link Fonts} registry, its font file is read and parsed at most once and
+ * every size and style is derived from the parsed font
+ */
+final class FontFamily {
+
+  private final String name;
+  private final String resource;
+  private final boolean antiAlias;
+  private final boolean fractionalMetrics;
+  private byte[] bytes;
+  private Font font;
+
+  /**
+   * Constructs a {@link FontFamily}
+   *
+   * @param name              The name of the family
+   * @param resource          The name of the .ttf file on the classpath without its extension
+   * @param antiAlias         Defines if anti aliasing should be used
+   * @param fractionalMetrics Defines if fractional metrics should be used
+   */
+  FontFamily(String name, String resource, boolean antiAlias, boolean fractionalMetrics) {
+    this.name = name;
+    this.resource = resource;
+    this.antiAlias = antiAlias;
+    this.fractionalMetrics = fractionalMetrics;
+  }
+
+  /**
+   * Method to return the bytes of the font file, they are read on the first call
+   *
+   * @return The bytes of the font file
+   * @throws IllegalStateException If the font file could not be read
+   */
+  synchronized byte[] bytes() {
+    if (bytes == null) {
+      try (InputStream inputStream = Fonts.class.getResourceAsStream("/" + resource + ".ttf")) {
+        if (inputStream == null) {
+          throw new IllegalStateException("Missing font " + resource);
+        }
+        bytes = IOUtils.toByteArray(inputStream);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not read font " + resource, e);
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Method to derive a font of this family, the font file is parsed on the first call
+   *
+   * @param style The awt style of the font
+   * @param size  The size of the font
+   * @return The derived font
+   * @throws IllegalStateException If the font file could not be parsed
+   */
+  synchronized Font fontOf(int style, float size) {
+    Object event = FlightEvents.beginFontCreate();
+    boolean parsed = font == null;
+    if (parsed) {
+      try {
+        font = Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(bytes()));
+      } catch (Exception e) {
+        throw new IllegalStateException("Could not parse font " + resource, e);
+      }
+    }
+    Font derived = font.deriveFont(style, size);
+    FlightEvents.endFontCreate(event, name, style, size, parsed);
+    return derived;
+  }
+
+  String name() {
+    return name;
+  }
+
+  String resource() {
+    return resource;
+  }
+
+  boolean antiAlias() {
+    return antiAlias;
+  }
+
+  boolean fractionalMetrics() {
+    return fractionalMetrics;
+  }
+}
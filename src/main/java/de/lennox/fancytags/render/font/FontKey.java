@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+/**
+ * Key of a font renderer or of an atlas in the {@link Fonts} registry
+ */
+final class FontKey {
+
+  private final FontFamily family;
+  private final int style;
+  private final int size;
+
+  /**
+   * Constructs a {@link FontKey}
+   *
+   * @param family The family of the font
+   * @param style  The awt style of the font, renderers always use the plain style
+   * @param size   The size of the font
+   */
+  FontKey(FontFamily family, int style, int size) {
+    this.family = family;
+    this.style = style;
+    this.size = size;
+  }
+
+  FontFamily family() {
+    return family;
+  }
+
+  int style() {
+    return style;
+  }
+
+  int size() {
+    return size;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof FontKey)) {
+      return false;
+    }
+    FontKey fontKey = (FontKey) o;
+    return style == fontKey.style && size == fontKey.size && family == fontKey.family;
+  }
+
+  @Override
+  public int hashCode() {
+    return (family.hashCode() * 31 + style) * 31 + size;
+  }
+}
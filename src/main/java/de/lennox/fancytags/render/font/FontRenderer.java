@@ -18,37 +18,12 @@
  */
 package de.lennox.fancytags.render.font;
 
-import static net.minecraft.client.renderer.GlStateManager.bindTexture;
-import static net.minecraft.client.renderer.GlStateManager.color;
-import static net.minecraft.client.renderer.GlStateManager.enableBlend;
-import static net.minecraft.client.renderer.GlStateManager.enableTexture2D;
-import static net.minecraft.client.renderer.GlStateManager.scale;
-import static org.lwjgl.opengl.GL11.GL_LINEAR;
-import static org.lwjgl.opengl.GL11.GL_LINES;
-import static org.lwjgl.opengl.GL11.GL_NEAREST;
-import static org.lwjgl.opengl.GL11.GL_POLYGON;
-import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
-import static org.lwjgl.opengl.GL11.GL_TEXTURE_MAG_FILTER;
-import static org.lwjgl.opengl.GL11.glBegin;
-import static org.lwjgl.opengl.GL11.glDisable;
-import static org.lwjgl.opengl.GL11.glEnable;
-import static org.lwjgl.opengl.GL11.glEnd;
-import static org.lwjgl.opengl.GL11.glLineWidth;
-import static org.lwjgl.opengl.GL11.glPopMatrix;
-import static org.lwjgl.opengl.GL11.glPushMatrix;
-import static org.lwjgl.opengl.GL11.glTexCoord2f;
-import static org.lwjgl.opengl.GL11.glTexParameterf;
-import static org.lwjgl.opengl.GL11.glVertex2d;
-
-import java.awt.Color;
+import de.lennox.fancytags.render.GlStateTracker;
+import de.lennox.fancytags.render.LabelStats;
+import de.lennox.fancytags.render.gl.Gl;
 import java.awt.Font;
-import java.awt.FontMetrics;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
+import java.util.concurrent.ThreadLocalRandom;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.renderer.texture.DynamicTexture;
 import net.minecraft.client.renderer.texture.TextureManager;
 import net.minecraft.client.settings.GameSettings;
 import net.minecraft.util.ResourceLocation;
@@ -56,23 +31,182 @@ import net.minecraft.util.ResourceLocation;
 public class FontRenderer {
 
   private static final Minecraft MC = Minecraft.getMinecraft();
-  private static final float FONT_SCALE_FACTOR = 8;
-  private final DynamicTexture bitmapTexture;
-  private final FontCharacter[] bitMapCharacters = new FontCharacter[256];
+  static final float FONT_SCALE_FACTOR = 8;
+  private static final double LINE_THICKNESS = 0.5D;
+  private static final GlyphBatch BATCH = new GlyphBatch(4096);
+  private final FontKey key;
+  // The atlases of the plain, bold, italic and bold italic style
+  private final GlyphAtlas[] atlases = new GlyphAtlas[4];
+  private final boolean[] requested = new boolean[4];
+  private volatile GlyphAtlas atlas;
+  private float scaleFactor = FONT_SCALE_FACTOR;
+  private int generation;
   private final int[] colorCodes = new int[32];
-  private final int imgSize = 1024;
-  private int fontHeight = -1;
+  private final int[] shadowColorCodes = new int[32];
+  private final TextLayoutCache layoutCache = new TextLayoutCache(this, 512);
+  // State of the xorshift generator of obfuscated glyphs, it must never be 0
+  private int random = (int) System.nanoTime() | 1;
+  volatile long lastUsed;
 
   /**
-   * Constructs a {@link FontRenderer}
+   * Constructs a {@link FontRenderer} which is not part of the {@link Fonts} registry, bold and
+   * italic text is drawn with the plain font
    *
    * @param font              The font which will be used in this font renderer
    * @param antiAlias         Defines if anti aliasing should be used
    * @param fractionalMetrics Defines if fractional metrics should be used
    */
   public FontRenderer(Font font, boolean antiAlias, boolean fractionalMetrics) {
+    this(null);
+    GlyphAtlas atlas = new GlyphAtlas(new GlyphRasterizer(font, antiAlias, fractionalMetrics),
+      GlyphAtlas.DEFAULT_MEMORY_CAP);
+    atlas.upload();
+    this.atlases[Font.PLAIN] = atlas;
+    this.atlas = atlas;
+  }
+
+  /**
+   * Constructs a {@link FontRenderer} of the registry without an atlas, it draws with the minecraft
+   * font renderer until its atlas is requested on the first use and set with {@link #ready}
+   *
+   * @param key The key of the font renderer in the registry
+   */
+  FontRenderer(FontKey key) {
+    this.key = key;
+    this.lastUsed = Gl.backend().time();
     generateColorCodes();
-    this.bitmapTexture = prepareBitMap(font, antiAlias, fractionalMetrics, this.bitMapCharacters);
+  }
+
+  /**
+   * Method to switch a style of this font renderer to a finished atlas, has to be called on the
+   * render thread
+   *
+   * @param style       The awt style of the atlas
+   * @param atlas       The uploaded atlas
+   * @param scaleFactor The factor which the atlas metrics are divided by
+   */
+  void ready(int style, GlyphAtlas atlas, float scaleFactor) {
+    if (atlas.isDeleted()) {
+      // The atlas was evicted before it arrived, it is requested again on the next use
+      requested[style] = false;
+      return;
+    }
+    atlases[style] = atlas;
+    if (style == Font.PLAIN) {
+      this.scaleFactor = scaleFactor;
+      this.atlas = atlas;
+    }
+    // Layouts which were measured with a fallback atlas are outdated
+    layoutCache.clear();
+    generation++;
+  }
+
+  /**
+   * Method to reset a style of this font renderer after its atlas failed to load, has to be called
+   * on the render thread
+   *
+   * @param style The awt style of the atlas
+   */
+  void failed(int style) {
+    // The style falls back to the plain atlas until it is requested again on the next use
+    requested[style] = false;
+  }
+
+  /**
+   * Method to mark this font renderer as used, evicted atlases are dropped and missing ones are
+   * requested, has to be called on the render thread
+   */
+  private void touch() {
+    long now = Gl.backend().time();
+    lastUsed = now;
+    GlyphAtlas atlas = this.atlas;
+    if (atlas != null && atlas.isDeleted()) {
+      release();
+      atlas = null;
+    }
+    if (atlas == null) {
+      request(Font.PLAIN);
+      return;
+    }
+    // Retained labels do not emit their glyphs, so all loaded styles are kept alive here
+    for (GlyphAtlas styledAtlas : atlases) {
+      if (styledAtlas != null) {
+        styledAtlas.lastUsed = now;
+      }
+    }
+  }
+
+  private void request(int style) {
+    if (key != null && !requested[style]) {
+      requested[style] = true;
+      Fonts.request(this, key, style);
+    }
+  }
+
+  /**
+   * Method to drop all atlases of this font renderer after they were evicted
+   */
+  private void release() {
+    for (int style = 0; style < atlases.length; style++) {
+      atlases[style] = null;
+      requested[style] = false;
+    }
+    atlas = null;
+    layoutCache.clear();
+    generation++;
+  }
+
+  /**
+   * Method to return the atlas of the style of a run, styles which are not loaded yet fall back to
+   * the plain atlas
+   *
+   * @param style The style flags of the run
+   * @return The atlas of the style
+   */
+  private GlyphAtlas atlasOf(int style) {
+    int fontStyle = fontStyleOf(style);
+    if (fontStyle == Font.PLAIN) {
+      return atlas;
+    }
+    GlyphAtlas styledAtlas = atlases[fontStyle];
+    if (styledAtlas != null && styledAtlas.isDeleted()) {
+      atlases[fontStyle] = null;
+      requested[fontStyle] = false;
+      styledAtlas = null;
+    }
+    if (styledAtlas == null) {
+      request(fontStyle);
+      return atlas;
+    }
+    return styledAtlas;
+  }
+
+  /**
+   * Method to return the atlas of the style of a run without changing any state, styles which are
+   * not loaded or were evicted fall back to the plain atlas
+   *
+   * @param style The style flags of the run
+   * @return The atlas of the style
+   */
+  private GlyphAtlas residentAtlasOf(int style) {
+    GlyphAtlas styledAtlas = atlases[fontStyleOf(style)];
+    return styledAtlas != null && !styledAtlas.isDeleted() ? styledAtlas : atlas;
+  }
+
+  private static int fontStyleOf(int style) {
+    return ((style & TextLayout.BOLD) != 0 ? Font.BOLD : Font.PLAIN)
+      | ((style & TextLayout.ITALIC) != 0 ? Font.ITALIC : Font.PLAIN);
+  }
+
+  /**
+   * Method to check if the atlas of this font renderer is ready, if not text is drawn and measured
+   * with the minecraft font renderer
+   *
+   * @return If the atlas is ready
+   */
+  public boolean isReady() {
+    touch();
+    return atlas != null;
   }
 
   /**
@@ -85,6 +219,11 @@ public class FontRenderer {
    * @return The width of the drawn text
    */
   public float drawStringWithShadow(String text, double x, double y, int color) {
+    touch();
+    if (atlas == null) {
+      // The minecraft font renderer draws the shadow and the text in one call
+      return drawFallback(text, x, y, color, true);
+    }
     float shadowWidth = drawString(text, x + 1, y + 1, color, true);
     return Math.max(shadowWidth, drawString(text, x, y, color, false));
   }
@@ -125,6 +264,10 @@ public class FontRenderer {
    * @return The width of the drawn text
    */
   public float drawCenteredStringWithShadow(String text, float x, float y, int color) {
+    touch();
+    if (atlas == null) {
+      return drawFallback(text, x - stringWidthOf(text) / 2, y, color, true);
+    }
     float shadowWidth = drawString(text, x - stringWidthOf(text) / 2 + 1, y + 1, color, true);
     return Math.max(shadowWidth, drawString(text, x - stringWidthOf(text) / 2, y, color));
   }
@@ -140,135 +283,219 @@ public class FontRenderer {
    * @return The width of the drawn text
    */
   private float drawString(String text, double x, double y, int color, boolean shadow) {
+    touch();
+    if (atlas == null) {
+      return drawFallback(text, x, y, color, false);
+    }
+    GlStateTracker.blend(true);
+    GlStateTracker.texture2D(true);
+    GlStateTracker.color(1.0F, 1.0F, 1.0F, 1.0F);
+    BATCH.transform(null);
+    TextLayout layout = layoutOf(text);
+    float endX = emit(BATCH, layout, x, y, color, shadow, false);
+    LabelStats.add(LabelStats.GLYPHS, layout.glyphCount());
+    draw(BATCH);
+    return endX;
+  }
+
+  /**
+   * Method to submit a batch which contains glyphs of this font renderer, distance field atlases
+   * are drawn with their shader
+   *
+   * @param batch The batch which will be drawn
+   */
+  public void draw(GlyphBatch batch) {
+    boolean distanceField = atlas.isDistanceField();
+    if (distanceField) {
+      DistanceFieldShader.use();
+    }
+    // Submit all glyphs and lines with one draw call per atlas page
+    batch.draw();
+    if (distanceField) {
+      DistanceFieldShader.release();
+    }
+  }
+
+  /**
+   * Method to draw a string with the minecraft font renderer until the atlas is ready
+   *
+   * @param text   The text which will be drawn
+   * @param x      The x position of the drawn text
+   * @param y      The y position of the drawn text
+   * @param color  The color of the drawn text
+   * @param shadow Defines if the shadow is drawn below the text
+   * @return The width of the drawn text
+   */
+  private float drawFallback(String text, double x, double y, int color, boolean shadow) {
+    MC.fontRendererObj.drawString(text, (float) x, (float) y, color, shadow);
+    GlStateTracker.invalidate();
+    return (float) x + MC.fontRendererObj.getStringWidth(text);
+  }
+
+  /**
+   * Method to emit the quads of a string into a batch without touching any gl state or this font
+   * renderer, only glyphs which are already in the atlases are read, so it can run on any thread
+   * once the layout was passed to {@link #prefetch} on the render thread, glyphs which are missing
+   * anyway are emitted as the missing glyph
+   *
+   * @param batch  The batch which the quads will be added to
+   * @param layout The layout of the text
+   * @param x      The x position of the text
+   * @param y      The y position of the text
+   * @param color  The color of the text
+   * @return The x position at the end of the text
+   */
+  public float emitString(GlyphBatch batch, TextLayout layout, double x, double y, int color) {
+    return emitString(batch, layout, x, y, color, false);
+  }
+
+  /**
+   * Method to emit the quads of a string or its shadow into a batch, see
+   * {@link #emitString(GlyphBatch, TextLayout, double, double, int)}
+   *
+   * @param batch  The batch which the quads will be added to
+   * @param layout The layout of the text
+   * @param x      The x position of the text
+   * @param y      The y position of the text
+   * @param color  The color of the text
+   * @param shadow Defines if the darker shadow is emitted, it is moved by one unit
+   * @return The x position at the end of the text
+   */
+  public float emitString(GlyphBatch batch, TextLayout layout, double x, double y, int color,
+    boolean shadow) {
+    return shadow ? emit(batch, layout, x + 1, y + 1, color, true, true)
+      : emit(batch, layout, x, y, color, false, true);
+  }
+
+  /**
+   * Method to load all glyphs of a layout, request its styles and mark their pages as used, has to
+   * be called on the render thread, pages which were used in the last second are never evicted, so
+   * the glyphs stay in the atlas while the layout is emitted by {@link #emitString}
+   *
+   * @param layout The layout of the text which will be emitted
+   */
+  public void prefetch(TextLayout layout) {
+    long now = Gl.backend().time();
+    int runCount = layout.runCount();
+    for (int run = 0; run < runCount; run++) {
+      GlyphAtlas atlas = atlasOf(layout.runStyle(run));
+      atlas.lastUsed = now;
+      int end = layout.runEnd(run);
+      for (int i = layout.runStart(run); i < end; i++) {
+        atlas.glyphOf(layout.glyph(i)).page.lastUsed = now;
+      }
+    }
+  }
+
+  /**
+   * Method to emit a solid rectangle into a batch, it samples the solid block of the atlas which
+   * has to be ready
+   *
+   * @param batch The batch which the quad will be added to
+   * @param x     The x position of the rectangle
+   * @param y     The y position of the rectangle
+   * @param x2    The x position the rectangle ends at
+   * @param y2    The y position the rectangle ends at
+   * @param color The color of the rectangle as argb
+   */
+  public void emitRect(GlyphBatch batch, double x, double y, double x2, double y2, int color) {
+    GlyphAtlas atlas = this.atlas;
+    float u = atlas.solidU();
+    float v = atlas.solidV();
+    batch.quad(atlas.basePage().textureId(), x, y, x2 - x, y2 - y, u, v, u, v, color);
+  }
+
+  /**
+   * Method to emit a string into a batch
+   *
+   * @param batch    The batch which the quads will be added to
+   * @param layout   The layout of the text which will be emitted
+   * @param x        The x position of the text
+   * @param y        The y position of the text
+   * @param color    The color of the text
+   * @param shadow   Defines if the text should be shadowed
+   * @param resident Defines if only glyphs which are already in the atlases are read and no state
+   *                 is changed, see {@link #emitString}
+   * @return The x position at the end of the text
+   */
+  private float emit(GlyphBatch batch, TextLayout layout, double x, double y, int color,
+    boolean shadow, boolean resident) {
     // Fix the color which was selected to be used
     if ((color & -67108864) == 0) {
       color |= -16777216;
     }
     // Calculate the base alpha of the start color, this will be used when coloring with minecraft color codes
     int alpha = color >> 24 & 0xFF;
-    float dividedAlpha = alpha / 255.0F;
     // Create a darker shadow color if needed
     if (shadow) {
-      color = new Color(color).darker().darker().darker().getRGB();
+      color = shadowOf(color);
     }
-    boolean strikethrough = false;
-    boolean underline = false;
-    boolean obfuscated = false;
-    StringBuilder drawnChars = new StringBuilder();
-    int size = text.length();
-    // Correct the x position based on the scale
-    double baseX = x;
-    x = (x - 1) * FONT_SCALE_FACTOR;
-    y = (y - 1.5D) * FONT_SCALE_FACTOR;
-    // Set the scale and color
-    glPushMatrix();
-    enableBlend();
-    scale(1f / FONT_SCALE_FACTOR, 1f / FONT_SCALE_FACTOR, 1f);
-    color((color >> 16 & 0xFF) / 255.0F, (color >> 8 & 0xFF) / 255.0F, (color & 0xFF) / 255.0F,
-      dividedAlpha);
-    // Bind the bitmap texture
-    enableTexture2D();
-    bindTexture(bitmapTexture.getGlTextureId());
-    // Make the font look smooth if scaled
-    glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-    for (int i = 0; i < size; i++) {
-      char character = text.charAt(i);
-      String chrAsString = String.valueOf(character);
-
-      // If the character is not supported draw it with the minecraft font renderer
-      if (character > 256) {
-        // Revert the scale
-        scale(FONT_SCALE_FACTOR, FONT_SCALE_FACTOR, 1);
-        MC.fontRendererObj.drawString(chrAsString,
-          (int) (baseX + stringWidthOf(drawnChars.toString()) + 1),
-          (int) (y / FONT_SCALE_FACTOR + 1.5), color + (alpha << 24));
-        // Apply the scale again
-        scale(1f / FONT_SCALE_FACTOR, 1f / FONT_SCALE_FACTOR, 1);
-        x += MC.fontRendererObj.getCharWidth(character) * 2 + 4 * FONT_SCALE_FACTOR;
-        drawnChars.append(chrAsString);
-        // Bind back the bitmap texture
-        enableTexture2D();
-        bindTexture(bitmapTexture.getGlTextureId());
-      } else {
-        // If the character is a color code, color the current
-        if (character == '§') {
-          // Get the index of the color code
-          int colorIndex = "0123456789abcdefklmnor".indexOf(text.charAt(i + 1));
-          // Color based on the color index
-          switch (colorIndex) {
-            case 16: {
-              // Set the obfuscated status (makes text unrecognizable)
-              obfuscated = true;
-              break;
-            }
-            case 18: {
-              // Set the strikethrough status (draws a line through the text)
-              strikethrough = true;
-              break;
-            }
-            case 19: {
-              // Set the underline status (draws a line under the text)
-              underline = true;
-              break;
-            }
-            default: {
-              if (colorIndex < 16) {
-                // Reset all other color caps
-                obfuscated = false;
-                strikethrough = false;
-                underline = false;
-                if (colorIndex < 0) {
-                  colorIndex = 15;
-                }
-                int colorCode = this.colorCodes[colorIndex];
-                // Created a shadow color if needed
-                if (shadow) {
-                  colorCode = new Color(colorCode).darker().darker().darker().getRGB();
-                }
-                // Set the current color
-                color = colorCode;
-                color((colorCode >> 16 & 0xFF) / 255.0F, (colorCode >> 8 & 0xFF) / 255.0F,
-                  (colorCode & 0xFF) / 255.0F, dividedAlpha);
-              } else {
-                // Reset the color caps
-                underline = false;
-                strikethrough = false;
-                // Reset the color
-                color((color >> 16 & 0xFF) / 255.0F, (color >> 8 & 0xFF) / 255.0F,
-                  (color & 0xFF) / 255.0F, dividedAlpha);
-              }
-              break;
-            }
-          }
-          i++;
-        } else if (character < bitMapCharacters.length) {
-          // TODO: Obfuscate characters like in minecraft
-          if (obfuscated) {
-            character = '*';
-          }
-          // Draw the current character
-          drawChar(character, (float) x, (float) y);
-          drawnChars.append(chrAsString);
-          // Draw a line through the text if wanted
-          if (strikethrough) {
-            line(x, y + bitMapCharacters[character].height / FONT_SCALE_FACTOR,
-              x + bitMapCharacters[character].width - 9,
-              y + bitMapCharacters[character].height / FONT_SCALE_FACTOR);
-          }
-          // Draw a line under the text if wanted
-          if (underline) {
-            line(x, y + bitMapCharacters[character].height - 2.0D,
-              x + bitMapCharacters[character].width - 8.0D,
-              y + bitMapCharacters[character].height - 2.0D);
-          }
-          x += bitMapCharacters[character].width - 8f;
+    // Correct the position based on the padding of the atlas
+    x -= 1;
+    y -= 1.5D;
+    long now = resident ? 0 : Gl.backend().time();
+    int runCount = layout.runCount();
+    for (int run = 0; run < runCount; run++) {
+      int colorIndex = layout.runColor(run);
+      int runColor = color;
+      if (colorIndex >= 0) {
+        // Use the precomputed shadow color if needed
+        runColor = shadow ? this.shadowColorCodes[colorIndex] : this.colorCodes[colorIndex];
+      }
+      // The color of the quads which are emitted in this run
+      int quadColor = runColor & 0xFFFFFF | alpha << 24;
+      int style = layout.runStyle(run);
+      GlyphAtlas atlas = resident ? residentAtlasOf(style) : atlasOf(style);
+      if (!resident) {
+        atlas.lastUsed = now;
+      }
+      boolean obfuscated = (style & TextLayout.OBFUSCATED) != 0;
+      int end = layout.runEnd(run);
+      for (int i = layout.runStart(run); i < end; i++) {
+        int codePoint = layout.glyph(i);
+        if (obfuscated) {
+          // Draw a random glyph of the same width like the minecraft font renderer, the base
+          // glyphs which it is picked from are always in the atlas
+          codePoint = atlas.obfuscatedOf(codePoint,
+            resident ? ThreadLocalRandom.current().nextInt() : nextRandom());
+        }
+        FontCharacter fontCharacter = resident ? atlas.residentGlyphOf(codePoint)
+          : atlas.glyphOf(codePoint);
+        double glyphX = x + layout.position(i);
+        if (!resident) {
+          // Keep the page of the glyph from being evicted
+          fontCharacter.page.lastUsed = now;
+        }
+        // Emit the current character
+        emitChar(batch, fontCharacter, glyphX, y, quadColor);
+        // Emit a line through the text if wanted
+        if ((style & TextLayout.STRIKETHROUGH) != 0) {
+          emitLine(batch, glyphX,
+            y + fontCharacter.height / (scaleFactor * scaleFactor),
+            (fontCharacter.width - 9) / scaleFactor, quadColor);
+        }
+        // Emit a line under the text if wanted
+        if ((style & TextLayout.UNDERLINE) != 0) {
+          emitLine(batch, glyphX, y + (fontCharacter.height - 2.0D) / scaleFactor,
+            (fontCharacter.width - 8.0D) / scaleFactor, quadColor);
         }
       }
     }
-    // Reset the tex parameter
-    glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-    glPopMatrix();
-    return (float) x / FONT_SCALE_FACTOR;
+    return (float) (x + layout.width());
+  }
+
+  /**
+   * Method to return the next value of the xorshift generator which picks obfuscated glyphs, it
+   * does not allocate and is only used on the render thread
+   *
+   * @return A random int
+   */
+  private int nextRandom() {
+    int random = this.random;
+    random ^= random << 13;
+    random ^= random >>> 17;
+    random ^= random << 5;
+    return this.random = random;
   }
 
   /**
@@ -278,23 +505,172 @@ public class FontRenderer {
    * @return The width of the text
    */
   public float stringWidthOf(String text) {
+    touch();
+    if (atlas == null) {
+      return MC.fontRendererObj.getStringWidth(text);
+    }
+    return layoutOf(text).width();
+  }
+
+  /**
+   * Method to return the width of a given text without caching its layout
+   *
+   * @param text The text as {@link CharSequence}
+   * @return The width of the text
+   */
+  public float stringWidthOf(CharSequence text) {
+    if (text instanceof String) {
+      return stringWidthOf(text.toString());
+    }
+    touch();
+    if (atlas == null) {
+      return MC.fontRendererObj.getStringWidth(text.toString());
+    }
     float width = 0;
+    int style = 0;
+    int previous = -1;
     int size = text.length();
     for (int i = 0; i < size; i++) {
       char character = text.charAt(i);
-      // If the character is invalid, check it with the default minecraft font renderer
-      if (character > 256) {
-        width += MC.fontRendererObj.getCharWidth(character) * 2 + 4 * FONT_SCALE_FACTOR;
-        continue;
+      if (character == '§') {
+        if (++i < size) {
+          int nextStyle = TextLayout.styleOf(TextLayout.formatIndexOf(text.charAt(i)), style);
+          // Glyphs of different styles are not kerned
+          if (nextStyle != style) {
+            previous = -1;
+          }
+          style = nextStyle;
+        }
+      } else {
+        int codePoint = Character.codePointAt(text, i);
+        i += Character.charCount(codePoint) - 1;
+        width += kerningOf(previous, codePoint, style) + advanceOf(codePoint, style);
+        previous = codePoint;
       }
-      // If the character is a color code indicator then continue
+    }
+    return width;
+  }
+
+  /**
+   * Method to return the width of a range of characters without caching its layout
+   *
+   * @param chars  The characters of the text
+   * @param offset The index of the first character
+   * @param length The amount of characters
+   * @return The width of the text
+   */
+  public float stringWidthOf(char[] chars, int offset, int length) {
+    touch();
+    if (atlas == null) {
+      return MC.fontRendererObj.getStringWidth(new String(chars, offset, length));
+    }
+    float width = 0;
+    int style = 0;
+    int previous = -1;
+    int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      char character = chars[i];
       if (character == '§') {
-        i++;
-      } else if (character < bitMapCharacters.length) {
-        width += bitMapCharacters[character].width - 8;
+        if (++i < end) {
+          int nextStyle = TextLayout.styleOf(TextLayout.formatIndexOf(chars[i]), style);
+          // Glyphs of different styles are not kerned
+          if (nextStyle != style) {
+            previous = -1;
+          }
+          style = nextStyle;
+        }
+      } else {
+        int codePoint = Character.codePointAt(chars, i, end);
+        i += Character.charCount(codePoint) - 1;
+        width += kerningOf(previous, codePoint, style) + advanceOf(codePoint, style);
+        previous = codePoint;
+      }
+    }
+    return width;
+  }
+
+  /**
+   * Method to return the cached layout of a given text, the atlas has to be ready, has to be called
+   * on the render thread as the layout cache is not thread safe
+   *
+   * @param text The text as {@link String}
+   * @return The layout of the text
+   */
+  public TextLayout layoutOf(String text) {
+    touch();
+    return layoutCache.layoutOf(text);
+  }
+
+  /**
+   * Method to return how far a code point advances the position of the following one
+   *
+   * @param codePoint The code point
+   * @param style     The style flags of the code point
+   * @return The advance of the code point
+   */
+  float advanceOf(int codePoint, int style) {
+    return (atlasOf(style).glyphOf(codePoint).width - 8) / scaleFactor;
+  }
+
+  /**
+   * Method to return the kerning between two code points of the same style
+   *
+   * @param left  The code point of the first glyph, -1 if there is none
+   * @param right The code point of the second glyph
+   * @param style The style flags of both code points
+   * @return The offset which is added to the advance of the first glyph
+   */
+  float kerningOf(int left, int right, int style) {
+    if (left < 0) {
+      return 0;
+    }
+    return atlasOf(style).kerning().valueOf(left, right) / scaleFactor;
+  }
+
+  /**
+   * Method to return the generation of the atlases of this font renderer, geometry which was
+   * emitted by an older generation refers to textures or glyph positions which may be gone
+   *
+   * @return The generation of the atlases
+   */
+  public int generation() {
+    int generation = this.generation;
+    for (GlyphAtlas styledAtlas : atlases) {
+      if (styledAtlas != null) {
+        generation = generation * 31 + styledAtlas.generation();
       }
     }
-    return width / FONT_SCALE_FACTOR;
+    return generation;
+  }
+
+  /**
+   * Method to check if the atlases of this font renderer store distance fields, those have to be
+   * drawn with the {@link DistanceFieldShader}
+   *
+   * @return If the atlases store distance fields
+   */
+  public boolean isDistanceField() {
+    GlyphAtlas atlas = this.atlas;
+    return atlas != null && atlas.isDistanceField();
+  }
+
+  /**
+   * Method to return the atlas of this font renderer
+   *
+   * @return The glyph atlas, null if it is not ready yet
+   */
+  public GlyphAtlas atlas() {
+    return atlas;
+  }
+
+  /**
+   * Method to return the height of a line at the size of this font, unlike {@link #height()} it
+   * does not change while the atlas is loaded
+   *
+   * @return The height of a line
+   */
+  public float lineHeight() {
+    return key == null ? height() : key.size() / FONT_SCALE_FACTOR;
   }
 
   /**
@@ -303,157 +679,59 @@ public class FontRenderer {
    * @return The height of the current font
    */
   public int height() {
-    return (int) ((fontHeight - 6) / FONT_SCALE_FACTOR);
-  }
-
-  /**
-   * Method to draw a character of the current font used in this font renderer
-   *
-   * @param chr The character which will be drawn
-   * @param x   The x position where the character will be drawn
-   * @param y   The y position where the character will be drawn
-   */
-  private void drawChar(char chr, float x, float y) {
-    glBegin(GL_POLYGON);
-    drawTexturedQuad(x, y, bitMapCharacters[chr].width, bitMapCharacters[chr].height,
-      bitMapCharacters[chr].x, bitMapCharacters[chr].y, bitMapCharacters[chr].width,
-      bitMapCharacters[chr].height);
-    glEnd();
-  }
-
-  /**
-   * Method to draw a textured quad of a position in a texture
-   *
-   * @param x         The x position of the quad
-   * @param y         The y position of the quad
-   * @param width     The width of the quad
-   * @param height    The height of the quad
-   * @param srcX      The x position of the texture which will be drawn
-   * @param srcY      The y position of the texture which will be drawn
-   * @param srcWidth  The width of the texture which will be drawn
-   * @param srcHeight The height of the texture which will be drawn
-   */
-  private void drawTexturedQuad(float x, float y, float width, float height, float srcX, float srcY,
-    float srcWidth, float srcHeight) {
-    // Calculate the texture bounds
-    float s = srcX / imgSize;
-    float t = srcY / imgSize;
-    float w = srcWidth / imgSize;
-    float h = srcHeight / imgSize;
-    // Draw the textured quad
-    glTexCoord2f(s + w, t);
-    glVertex2d(x + width, y);
-    glTexCoord2f(s, t);
-    glVertex2d(x, y);
-    glTexCoord2f(s, t + h);
-    glVertex2d(x, y + height);
-    glTexCoord2f(s, t + h);
-    glVertex2d(x, y + height);
-    glTexCoord2f(s + w, t + h);
-    glVertex2d(x + width, y + height);
-    glTexCoord2f(s + w, t);
-    glVertex2d(x + width, y);
-  }
-
-  /**
-   * Method to prepare the bitmap for this font renderer
-   *
-   * @param font              The font which is being used in this font renderer
-   * @param antiAlias         Defines if the font should be anti aliased
-   * @param fractionalMetrics Defines if the Characters should be sub-pixel correct
-   * @param chars             All chars which will be in the bitmap
-   * @return The finished bitmap image as {@link DynamicTexture}
-   */
-  private DynamicTexture prepareBitMap(Font font, boolean antiAlias, boolean fractionalMetrics,
-    FontCharacter[] chars) {
-    BufferedImage img = geneateBitMap(font, antiAlias, fractionalMetrics, chars);
-    return new DynamicTexture(img);
-  }
-
-  /**
-   * Method to generate a bitmap image of a specific .ttf font
-   *
-   * @param font              The Font which a bitmap will be created of
-   * @param antiAlias         Defines if Anti Aliasing should be enabled in Graphics2D
-   * @param fractionalMetrics Defines if Fractional Metrics should be enabled in Graphics2D
-   * @param chars             All chars requested to be contained in the bitmap
-   * @return The finished bitmap image as {@link BufferedImage}
-   */
-  protected BufferedImage geneateBitMap(Font font, boolean antiAlias, boolean fractionalMetrics,
-    FontCharacter[] chars) {
-    // Create a new buffered image
-    BufferedImage buf = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_ARGB);
-    // Prepare a graphics 2d ctx
-    Graphics2D graphics2D = (Graphics2D) buf.getGraphics();
-    // Set the antialiasing of the ctx
-    graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-      antiAlias ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
-    // Set the fractional metrics of the ctx
-    graphics2D.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
-      fractionalMetrics ? RenderingHints.VALUE_FRACTIONALMETRICS_ON
-        : RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
-    // Set the font of the ctx
-    graphics2D.setFont(font);
-    // Set the primary color of the ctx
-    graphics2D.setColor(new Color(-1));
-    float height = 0;
-    int x = 0;
-    int y = 0;
-    // Receive the font metrics of the prepared ctx
-    FontMetrics metrics = graphics2D.getFontMetrics();
-    for (int i = 0; i < chars.length; i++) {
-      char chr = (char) i;
-      FontCharacter fontCharacter = new FontCharacter();
-      // Get the dimensions of the drawn character
-      Rectangle2D dimensions = metrics.getStringBounds(String.valueOf(chr), graphics2D);
-      // Set the w and h of the font char
-      fontCharacter.width = (float) (metrics.stringWidth(String.valueOf(chr))) + 8f;
-      fontCharacter.height = (float) dimensions.getHeight();
-      // Check if the character would be drawn out of bounds, if yes continue on a new line
-      if (x + fontCharacter.width > imgSize) {
-        x = 0;
-        y += height + 8f;
-        height = 0;
-      }
-      if (fontCharacter.height > height) {
-        height = fontCharacter.height;
-      }
-      // Update the font height of the current font
-      if (fontCharacter.height > fontHeight) {
-        fontHeight = (int) fontCharacter.height;
-      }
-      // Set the position of the font char
-      fontCharacter.x = x;
-      fontCharacter.y = y;
-      // Add the font char to the list
-      chars[i] = fontCharacter;
-      // Draw the char to the ctx
-      graphics2D.drawString(String.valueOf(chr), x + 2f, y + metrics.getAscent());
-      // Expand the x position
-      x += fontCharacter.width;
+    if (atlas == null) {
+      return MC.fontRendererObj.FONT_HEIGHT;
     }
-    return buf;
+    return (int) ((atlas.height() - 6) / scaleFactor);
+  }
+
+  /**
+   * Method to emit a character of the current font used in this font renderer into a batch
+   *
+   * @param batch         The batch which the quad will be added to
+   * @param fontCharacter The character which will be emitted
+   * @param x             The x position where the character will be drawn
+   * @param y             The y position where the character will be drawn
+   * @param color         The color of the character as argb
+   */
+  private void emitChar(GlyphBatch batch, FontCharacter fontCharacter, double x, double y,
+    int color) {
+    batch.quad(fontCharacter.page.textureId(), x, y, fontCharacter.width / scaleFactor,
+      fontCharacter.height / scaleFactor, fontCharacter.u0, fontCharacter.v0,
+      fontCharacter.u1, fontCharacter.v1, color);
   }
 
   /**
-   * Method to draw a line at a specific position to another position
+   * Method to emit a horizontal line into a batch, the line samples the solid block of the atlas
+   * so it can be drawn without disabling the texture
    *
-   * @param x  The x position of the line
-   * @param y  The y position of the line
-   * @param x2 The x position the line will end at
-   * @param y2 The y position the line will end at
+   * @param batch The batch which the quad will be added to
+   * @param x     The x position of the line
+   * @param y     The y position the line is centered on
+   * @param width The width of the line
+   * @param color The color of the line as argb
    */
-  private void line(double x, double y, double x2, double y2) {
-    // Disable texture
-    glDisable(GL_TEXTURE_2D);
-    glLineWidth(2.0F);
-    // Draw the line
-    glBegin(GL_LINES);
-    glVertex2d(x, y);
-    glVertex2d(x2, y2);
-    glEnd();
-    // Enable texture
-    glEnable(GL_TEXTURE_2D);
+  private void emitLine(GlyphBatch batch, double x, double y, double width, int color) {
+    emitRect(batch, x, y - LINE_THICKNESS / 2, x + width, y + LINE_THICKNESS / 2, color);
+  }
+
+  /**
+   * Method to create the shadow color of a color, matches {@link java.awt.Color#darker()} applied
+   * three times without allocating
+   *
+   * @param color The color as rgb
+   * @return The shadow color as opaque argb
+   */
+  static int shadowOf(int color) {
+    int r = color >> 16 & 0xFF;
+    int g = color >> 8 & 0xFF;
+    int b = color & 0xFF;
+    for (int i = 0; i < 3; i++) {
+      r = (int) (r * 0.7D);
+      g = (int) (g * 0.7D);
+      b = (int) (b * 0.7D);
+    }
+    return 0xFF000000 | r << 16 | g << 8 | b;
   }
 
   /**
@@ -481,6 +759,7 @@ public class FontRenderer {
       }
 
       this.colorCodes[i] = (k & 255) << 16 | (l & 255) << 8 | i1 & 255;
+      this.shadowColorCodes[i] = shadowOf(this.colorCodes[i]);
     }
   }
 }
@@ -18,62 +18,292 @@
  */
 package de.lennox.fancytags.render.font;
 
+import de.lennox.fancytags.jfr.FlightEvents;
+import de.lennox.fancytags.render.gl.Gl;
 import java.awt.Font;
-import java.util.HashMap;
+import java.io.File;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import net.minecraft.client.Minecraft;
 
+/**
+ * Thread safe registry of all fonts, renderers can be requested from any thread while atlases are
+ * loaded on the loader thread and uploaded, drawn and released on the render thread, renderers and
+ * atlases which were not used for a while are evicted
+ */
 public class Fonts {
 
-  private static final HashMap<Integer, FontRenderer> INTER = new HashMap<>();
+  public static final int DEFAULT_RESOLUTION = 72;
+  public static final int DEFAULT_SIZE = 72;
+  private static final long EVICTION_TIMEOUT = 30000;
+  private static final long EVICTION_INTERVAL = 1000;
+  private static final long CONFIGURE_DELAY = 500;
+  private static final Map<String, FontFamily> FAMILIES = new ConcurrentHashMap<>();
+  private static final Map<FontKey, FontRenderer> RENDERERS = new ConcurrentHashMap<>();
+  // Atlases of every family, style and size, they complete once they are uploaded
+  private static final Map<FontKey, CompletableFuture<GlyphAtlas>> ATLASES =
+    new ConcurrentHashMap<>();
+  private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "FancyTags Font Loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final Executor RENDER_THREAD = Fonts::runOnRenderThread;
+  public static final String INTER = "Inter";
+  private static long lastEviction;
+  // Distance field atlases are rasterized at this size and scaled to every other size, bitmap
+  // atlases are rasterized at their own size up to it
+  private static volatile int resolution = DEFAULT_RESOLUTION;
+  private static volatile boolean linearFiltering = true;
+  // The renderer of the labels, it is swapped when the size changes
+  private static volatile int size = DEFAULT_SIZE;
+  private static volatile FontRenderer current;
+  // The values of the last configure call, they are applied once they stop changing
+  private static volatile int pendingSize = DEFAULT_SIZE;
+  private static volatile int pendingResolution = DEFAULT_RESOLUTION;
+  private static volatile boolean pendingLinearFiltering = true;
+  private static volatile long configuredAt;
+
+  static {
+    register(INTER, "Inter-Medium", true, true);
+  }
+
+  /**
+   * Method to register a font family, its font file is only read once a renderer is used
+   *
+   * @param name              The name of the family
+   * @param resource          The name of the .ttf file on the classpath without its extension
+   * @param antiAlias         Defines if anti aliasing should be used
+   * @param fractionalMetrics Defines if fractional metrics should be used
+   */
+  public static void register(String name, String resource, boolean antiAlias,
+    boolean fractionalMetrics) {
+    FAMILIES.putIfAbsent(name, new FontFamily(name, resource, antiAlias, fractionalMetrics));
+  }
 
   /**
-   * Method to return a font with a wanted size
+   * Method to return the inter font with a wanted size
    *
    * @param size The wanted size of the font
    * @return The font with the wanted size
    */
   public static FontRenderer interOf(int size) {
-    checkIfAbsent(INTER, size, Font.PLAIN, "Inter-Medium", true, true);
-    return INTER.get(size);
+    return of(INTER, size);
   }
 
   /**
-   * Method to check if there already is a font created with the requested size if it does not exist
-   * create it
+   * Method to return the inter font at the configured label size, the renderer is swapped once
+   * {@link #configure} changes the size, so callers should not keep it across frames
    *
-   * @param map               The map with all the fonts
-   * @param size              The requested size
-   * @param type              The requested font type
-   * @param fontName          The requested font name
-   * @param antiAlias         The requested anti alias state
-   * @param fractionalMetrics The requested fractional metrics state
+   * @return The font at the configured size
    */
-  private static void checkIfAbsent(HashMap<Integer, FontRenderer> map, int size, int type,
-    String fontName, boolean antiAlias, boolean fractionalMetrics) {
-    if (!map.containsKey(size)) {
-      Font font = fontOf(fontName + ".ttf", size, type);
-      map.put(size,
-        new FontRenderer(font.deriveFont((float) size), antiAlias, fractionalMetrics));
+  public static FontRenderer current() {
+    FontRenderer fontRenderer = current;
+    if (fontRenderer == null) {
+      current = fontRenderer = interOf(size);
     }
+    return fontRenderer;
   }
 
   /**
-   * Method to get a {@link Font} from a .ttf {@link java.io.InputStream}
+   * Method to return a font of a registered family with a wanted size, the returned font renderer
+   * draws with the minecraft font renderer until its atlas is uploaded
    *
-   * @param fontLocation The location of the font
-   * @param fontSize     The requested size of the font
-   * @param fontType     The requested type of the font
-   * @return The created {@link Font}
+   * @param family The name of the family
+   * @param size   The wanted size of the font
+   * @return The font with the wanted size
    */
-  private static Font fontOf(String fontLocation, float fontSize, int fontType) {
-    try {
-      Font output = Font.createFont(fontType, Fonts.class.getResourceAsStream("/" + fontLocation));
-      output = output.deriveFont(fontSize);
-      return output;
-    } catch (Exception e) {
-      e.printStackTrace();
-      return null;
+  public static FontRenderer of(String family, int size) {
+    FontFamily fontFamily = FAMILIES.get(family);
+    if (fontFamily == null) {
+      throw new IllegalArgumentException("Unknown font family " + family);
     }
+    return RENDERERS.computeIfAbsent(new FontKey(fontFamily, Font.PLAIN, size),
+      key -> new FontRenderer(key));
   }
 
+  /**
+   * Method to request the atlas of a style of a font renderer, has to be called on the render
+   * thread, the renderer receives the atlas once it is uploaded, an atlas which failed to load is
+   * requested again on the next use
+   *
+   * @param fontRenderer The font renderer
+   * @param key          The key of the font renderer
+   * @param style        The awt style of the atlas
+   */
+  static void request(FontRenderer fontRenderer, FontKey key, int style) {
+    // Keep renderers which are used again after their eviction in the registry
+    RENDERERS.putIfAbsent(key, fontRenderer);
+    boolean distanceField = DistanceFieldShader.isSupported();
+    // All sizes share one distance field atlas and only differ in their scale
+    int resolution = Fonts.resolution;
+    FontKey atlasKey = new FontKey(key.family(), style,
+      distanceField ? resolution : Math.min(key.size(), resolution));
+    float scaleFactor = FontRenderer.FONT_SCALE_FACTOR * atlasKey.size() / key.size();
+    boolean linearFiltering = Fonts.linearFiltering;
+    CompletableFuture<GlyphAtlas> future = ATLASES.computeIfAbsent(atlasKey,
+      k -> load(k, distanceField, linearFiltering));
+    future.whenCompleteAsync((atlas, throwable) -> {
+      if (throwable == null) {
+        fontRenderer.ready(style, atlas, scaleFactor);
+        return;
+      }
+      // Forget the failed atlas, so it is loaded again on the next use
+      ATLASES.remove(atlasKey, future);
+      fontRenderer.failed(style);
+    }, RENDER_THREAD);
+  }
+
+  /**
+   * Method to load an atlas on the loader thread and upload it on the render thread, the base page
+   * is read from the {@link AtlasCache} if the font did not change since it was written
+   *
+   * @param key             The key of the atlas
+   * @param distanceField   Defines if the atlas stores distance fields
+   * @param linearFiltering Defines if the pages of the atlas are sampled with linear filtering
+   * @return The future of the uploaded atlas
+   */
+  private static CompletableFuture<GlyphAtlas> load(FontKey key, boolean distanceField,
+    boolean linearFiltering) {
+    CompletableFuture<GlyphAtlas> built = CompletableFuture.supplyAsync(() -> {
+      Object event = FlightEvents.beginAtlasBuild();
+      FontFamily family = key.family();
+      int size = key.size();
+      int style = key.style();
+      byte[] fontBytes = family.bytes();
+      String name = family.resource() + "-" + style + "-" + size + (distanceField ? "-sdf" : "");
+      byte[] cacheKey = AtlasCache.keyOf(fontBytes, size, style, family.antiAlias(),
+        family.fractionalMetrics(), distanceField);
+      Supplier<GlyphRasterizer> rasterizerFactory = () -> new GlyphRasterizer(
+        family.fontOf(style, size), family.antiAlias(), family.fractionalMetrics());
+      GlyphAtlas atlas = Cache.INSTANCE.read(name, cacheKey, rasterizerFactory,
+        GlyphAtlas.DEFAULT_MEMORY_CAP, distanceField);
+      boolean cached = atlas != null;
+      if (!cached) {
+        // Rasterize the atlas on this thread, only the upload is done on the render thread
+        atlas = new GlyphAtlas(rasterizerFactory.get(), GlyphAtlas.DEFAULT_MEMORY_CAP,
+          distanceField);
+        Cache.INSTANCE.write(name, cacheKey, atlas);
+      }
+      FlightEvents.endAtlasBuild(event, family.resource(), style, size,
+        atlas.basePage().glyphCount(), distanceField, cached);
+      return atlas;
+    }, LOADER);
+    return built.thenApplyAsync(atlas -> {
+      atlas.setLinearFiltering(linearFiltering);
+      atlas.upload();
+      return atlas;
+    }, RENDER_THREAD).whenComplete((atlas, throwable) -> {
+      if (throwable != null) {
+        throwable.printStackTrace();
+      }
+    });
+  }
 
+  /**
+   * Method to change the label size and the resolution and the filtering of all atlases, a new
+   * size swaps the renderer of {@link #current()}, new atlas settings release every atlas and the
+   * atlases are requested again once their renderers are used, so the change applies without a
+   * restart, renderers draw with the minecraft font renderer in between
+   * <p>
+   * The values are applied by {@link #evictUnused()} once they did not change for
+   * {@link #CONFIGURE_DELAY} ms, so dragging a slider rebuilds the atlases once on release
+   *
+   * @param size            The size of the label font, the default is {@link #DEFAULT_SIZE}
+   * @param resolution      The size which atlases are rasterized at, the default is
+   *                        {@link #DEFAULT_RESOLUTION}
+   * @param linearFiltering Defines if bitmap atlases are sampled with linear filtering
+   */
+  public static void configure(int size, int resolution, boolean linearFiltering) {
+    pendingSize = size;
+    pendingResolution = resolution;
+    pendingLinearFiltering = linearFiltering;
+    configuredAt = Gl.backend().time();
+    // Nothing has to be rebuilt before the first atlas is requested
+    if (ATLASES.isEmpty()) {
+      runOnRenderThread(Fonts::applyPending);
+    }
+  }
+
+  /**
+   * Method to apply the values of the last configure call, nothing is released if they did not
+   * change, has to be called on the render thread
+   */
+  private static void applyPending() {
+    int size = pendingSize;
+    if (Fonts.size != size) {
+      Fonts.size = size;
+      current = interOf(size);
+    }
+    int resolution = pendingResolution;
+    boolean linearFiltering = pendingLinearFiltering;
+    if (Fonts.resolution == resolution && Fonts.linearFiltering == linearFiltering) {
+      return;
+    }
+    Fonts.resolution = resolution;
+    Fonts.linearFiltering = linearFiltering;
+    Iterator<CompletableFuture<GlyphAtlas>> iterator = ATLASES.values().iterator();
+    while (iterator.hasNext()) {
+      CompletableFuture<GlyphAtlas> future = iterator.next();
+      iterator.remove();
+      // Atlases which are still loading are released once they are uploaded
+      future.thenAcceptAsync(GlyphAtlas::delete, RENDER_THREAD);
+    }
+  }
+
+  /**
+   * Method to evict renderers and atlases which were not used for a while, the textures of evicted
+   * atlases are released, applies the values of {@link #configure} once they settled, has to be
+   * called on the render thread
+   */
+  public static void evictUnused() {
+    long now = Gl.backend().time();
+    if (now - configuredAt >= CONFIGURE_DELAY) {
+      applyPending();
+    }
+    if (now - lastEviction < EVICTION_INTERVAL) {
+      return;
+    }
+    lastEviction = now;
+    RENDERERS.values().removeIf(fontRenderer -> now - fontRenderer.lastUsed > EVICTION_TIMEOUT);
+    Iterator<CompletableFuture<GlyphAtlas>> iterator = ATLASES.values().iterator();
+    while (iterator.hasNext()) {
+      CompletableFuture<GlyphAtlas> future = iterator.next();
+      // Atlases which are still loading are kept, failed ones are removed by their request
+      if (!future.isDone() || future.isCompletedExceptionally()) {
+        continue;
+      }
+      GlyphAtlas atlas = future.join();
+      if (now - atlas.lastUsed > EVICTION_TIMEOUT) {
+        iterator.remove();
+        // Renderers drop deleted atlases and request them again when they are used
+        atlas.delete();
+      }
+    }
+  }
+
+  private static void runOnRenderThread(Runnable runnable) {
+    Minecraft minecraft = Minecraft.getMinecraft();
+    if (minecraft.isCallingFromMinecraftThread()) {
+      runnable.run();
+    } else {
+      minecraft.addScheduledTask(runnable);
+    }
+  }
+
+  /**
+   * Holds the atlas cache, the directory of the game is only resolved once the first atlas is
+   * loaded, so the registry can be used without a running game
+   */
+  private static final class Cache {
+
+    private static final AtlasCache INSTANCE = new AtlasCache(
+      new File(Minecraft.getMinecraft().mcDataDir, "fancytags/cache"));
+  }
 }
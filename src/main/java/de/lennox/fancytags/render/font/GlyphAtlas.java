@@ -0,0 +1,566 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import de.lennox.fancytags.render.gl.Gl;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import org.lwjgl.BufferUtils;
+
+/**
+ * Glyph atlas which covers all unicode code points, the base page is sized to fit the first 256
+ * glyphs, other glyphs are rasterized on their first use and uploaded to a page with free space,
+ * least recently used pages are evicted if the atlas exceeds its memory cap
+ */
+public class GlyphAtlas {
+
+  public static final long DEFAULT_MEMORY_CAP = 8L << 20;
+  static final int SOLID_BLOCK_SIZE = 4;
+  private static final int PAGE_SIZE = 512;
+  private static final int MAX_PAGE_SIZE = 4096;
+  private static final int BASE_GLYPHS = 256;
+  private static final int MISSING_GLYPH = '?';
+  // Kerning is measured for all pairs of printable ascii characters
+  private static final int KERNING_FIRST = 0x20;
+  private static final int KERNING_LAST = 0x7E;
+  private static final long EVICTION_DELAY = 1000;
+  private final Supplier<GlyphRasterizer> rasterizerFactory;
+  private volatile GlyphRasterizer rasterizer;
+  private final int height;
+  private final boolean distanceField;
+  private boolean linearFiltering = true;
+  // Two level table of all code points, blocks of 256 glyphs are created when needed
+  private final FontCharacter[][] glyphs = new FontCharacter[(Character.MAX_CODE_POINT + 1) >> 8][];
+  private final List<AtlasPage> pages = new ArrayList<>();
+  private AtlasPage basePage;
+  private int solidX;
+  private int solidY;
+  private ByteBuffer basePixels;
+  private AtlasPage currentPage;
+  // Base glyphs grouped by their width, the buckets hold the start of every width in the glyphs
+  private int[] obfuscationGlyphs;
+  private int[] obfuscationBuckets;
+  private KerningTable kerning = KerningTable.EMPTY;
+  private long memoryCap;
+  private volatile boolean deleted;
+  private int generation;
+  volatile long lastUsed;
+
+  /**
+   * Constructs a {@link GlyphAtlas}, the first 256 code points are rasterized directly, this does
+   * not touch any gl state so it can be done off the render thread
+   *
+   * @param rasterizer The rasterizer of the font
+   * @param memoryCap  The maximum amount of texture memory in bytes before pages are evicted
+   */
+  public GlyphAtlas(GlyphRasterizer rasterizer, long memoryCap) {
+    this(rasterizer, memoryCap, false);
+  }
+
+  /**
+   * Constructs a {@link GlyphAtlas} which optionally stores signed distance fields instead of the
+   * coverage of the glyphs, those atlases have to be drawn with the {@link DistanceFieldShader}
+   *
+   * @param rasterizer    The rasterizer of the font
+   * @param memoryCap     The maximum amount of texture memory in bytes before pages are evicted
+   * @param distanceField Defines if the glyphs are stored as distance fields
+   */
+  public GlyphAtlas(GlyphRasterizer rasterizer, long memoryCap, boolean distanceField) {
+    this(() -> rasterizer, rasterizer.height(), memoryCap, distanceField);
+    this.rasterizer = rasterizer;
+    FontCharacter[] characters = new FontCharacter[BASE_GLYPHS];
+    for (int codePoint = 0; codePoint < BASE_GLYPHS; codePoint++) {
+      characters[codePoint] = create(codePoint);
+    }
+    FontCharacter solidBlock = new FontCharacter();
+    this.basePage = pack(characters, solidBlock);
+    this.solidX = solidBlock.x;
+    this.solidY = solidBlock.y;
+    // Rasterize the base glyphs into one image and upload it at once
+    int width = basePage.width();
+    int height = basePage.height();
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics2D = rasterizer.prepare(image, rasterizer.font());
+    for (int codePoint = 0; codePoint < BASE_GLYPHS; codePoint++) {
+      FontCharacter fontCharacter = characters[codePoint];
+      rasterizer.draw(graphics2D, codePoint, fontCharacter.x, fontCharacter.y);
+      register(basePage, codePoint, fontCharacter);
+    }
+    if (distanceField) {
+      DistanceField.encode(pixelsOf(image), width, height);
+    }
+    // Fill the solid block, lines and backgrounds sample it
+    graphics2D.fillRect(solidX, solidY, SOLID_BLOCK_SIZE, SOLID_BLOCK_SIZE);
+    graphics2D.dispose();
+    // Only the alpha is kept, the glyphs are white
+    this.basePixels = BufferUtils.createByteBuffer(width * height);
+    AtlasPage.alphaOf(image, basePixels);
+    basePixels.flip();
+    this.pages.add(basePage);
+    this.currentPage = basePage;
+    groupByWidth();
+    this.kerning = rasterizer.kerningOf(KERNING_FIRST, KERNING_LAST);
+  }
+
+  /**
+   * Constructs a {@link GlyphAtlas} from a base page which was read from the {@link AtlasCache},
+   * the rasterizer is only created once a glyph outside of the base page is requested
+   *
+   * @param rasterizerFactory The factory of the rasterizer of the font
+   * @param height            The height of the glyph cells
+   * @param memoryCap         The maximum amount of texture memory in bytes before pages are evicted
+   * @param distanceField     Defines if the glyphs are stored as distance fields
+   * @param basePage          The base page with its restored skyline
+   * @param solidX            The x position of the solid block on the base page
+   * @param solidY            The y position of the solid block on the base page
+   * @param codePoints        The code points of the base glyphs
+   * @param characters        The base glyphs with their cell positions and sizes
+   * @param basePixels        The alpha of every texel of the base page
+   * @param kerning           The kerning of the font
+   */
+  GlyphAtlas(Supplier<GlyphRasterizer> rasterizerFactory, int height, long memoryCap,
+    boolean distanceField, AtlasPage basePage, int solidX, int solidY, int[] codePoints,
+    FontCharacter[] characters, ByteBuffer basePixels, KerningTable kerning) {
+    this(rasterizerFactory, height, memoryCap, distanceField);
+    this.basePage = basePage;
+    this.solidX = solidX;
+    this.solidY = solidY;
+    for (int i = 0; i < codePoints.length; i++) {
+      register(basePage, codePoints[i], characters[i]);
+    }
+    this.basePixels = basePixels;
+    this.pages.add(basePage);
+    this.currentPage = basePage;
+    groupByWidth();
+    this.kerning = kerning;
+  }
+
+  private GlyphAtlas(Supplier<GlyphRasterizer> rasterizerFactory, int height, long memoryCap,
+    boolean distanceField) {
+    this.rasterizerFactory = rasterizerFactory;
+    this.height = height;
+    this.distanceField = distanceField;
+    this.memoryCap = memoryCap;
+  }
+
+  /**
+   * Method to find the smallest base page which fits the solid block and all base glyphs, every
+   * size is tried as a half and as a full square
+   *
+   * @param characters The base glyphs which receive their cell positions
+   * @param solidBlock The character which receives the position of the solid block
+   * @return The packed base page
+   */
+  private static AtlasPage pack(FontCharacter[] characters, FontCharacter solidBlock) {
+    for (int size = 64; size <= MAX_PAGE_SIZE; size <<= 1) {
+      for (int height = size / 2; height <= size; height += size / 2) {
+        AtlasPage page = new AtlasPage(size, height);
+        if (fits(page, characters, solidBlock)) {
+          return page;
+        }
+      }
+    }
+    throw new IllegalStateException("Base glyphs do not fit on one atlas page");
+  }
+
+  private static boolean fits(AtlasPage page, FontCharacter[] characters,
+    FontCharacter solidBlock) {
+    if (!page.allocate(SOLID_BLOCK_SIZE, SOLID_BLOCK_SIZE, solidBlock)) {
+      return false;
+    }
+    for (FontCharacter fontCharacter : characters) {
+      if (!page.allocate((int) fontCharacter.width, (int) fontCharacter.height, fontCharacter)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Method to group the printable base glyphs by their width with a counting sort, obfuscated text
+   * picks its glyphs from these groups without searching
+   */
+  private void groupByWidth() {
+    int maxWidth = 0;
+    for (int codePoint = 0; codePoint < BASE_GLYPHS; codePoint++) {
+      if (isObfuscationGlyph(codePoint)) {
+        maxWidth = Math.max(maxWidth, (int) glyphOf(codePoint).width);
+      }
+    }
+    // Count the glyphs of every width, the count of width w is stored at w + 1
+    int[] buckets = new int[maxWidth + 2];
+    int count = 0;
+    for (int codePoint = 0; codePoint < BASE_GLYPHS; codePoint++) {
+      if (isObfuscationGlyph(codePoint)) {
+        buckets[(int) glyphOf(codePoint).width + 1]++;
+        count++;
+      }
+    }
+    for (int width = 1; width < buckets.length; width++) {
+      buckets[width] += buckets[width - 1];
+    }
+    int[] glyphs = new int[count];
+    int[] cursors = Arrays.copyOf(buckets, buckets.length);
+    for (int codePoint = 0; codePoint < BASE_GLYPHS; codePoint++) {
+      if (isObfuscationGlyph(codePoint)) {
+        glyphs[cursors[(int) glyphOf(codePoint).width]++] = codePoint;
+      }
+    }
+    this.obfuscationGlyphs = glyphs;
+    this.obfuscationBuckets = buckets;
+  }
+
+  private static boolean isObfuscationGlyph(int codePoint) {
+    return !Character.isISOControl(codePoint) && !Character.isSpaceChar(codePoint)
+      && codePoint != 0xAD;
+  }
+
+  /**
+   * Method to pick a random base glyph with the same width as a code point, the code point has to
+   * be in the atlas already which is the case for every glyph of a layout
+   *
+   * @param codePoint The code point which is obfuscated
+   * @param random    A random int
+   * @return The code point of the picked glyph, the code point itself if no glyph has its width
+   */
+  public int obfuscatedOf(int codePoint, int random) {
+    int width = (int) residentGlyphOf(codePoint).width;
+    if (width + 1 >= obfuscationBuckets.length) {
+      return codePoint;
+    }
+    int start = obfuscationBuckets[width];
+    int count = obfuscationBuckets[width + 1] - start;
+    if (count == 0) {
+      return codePoint;
+    }
+    return obfuscationGlyphs[start + (random & Integer.MAX_VALUE) % count];
+  }
+
+  /**
+   * Method to upload the base page, has to be called on the render thread before the atlas is used
+   */
+  public void upload() {
+    if (basePixels == null) {
+      return;
+    }
+    basePage.allocateTexture(linearFiltering || distanceField);
+    basePage.upload(basePixels);
+    // The pixels are not needed anymore once they are on the gpu
+    basePixels = null;
+    lastUsed = Gl.backend().time();
+  }
+
+  /**
+   * Method to return the rasterizer of the font, if the atlas was read from the cache it is only
+   * created once a glyph outside of the base page is requested, so atlases of the cache never load
+   * the awt font unless they need it
+   *
+   * @return The rasterizer of the font
+   */
+  GlyphRasterizer rasterizer() {
+    GlyphRasterizer rasterizer = this.rasterizer;
+    if (rasterizer == null) {
+      synchronized (this) {
+        rasterizer = this.rasterizer;
+        if (rasterizer == null) {
+          rasterizer = this.rasterizer = rasterizerFactory.get();
+        }
+      }
+    }
+    return rasterizer;
+  }
+
+  /**
+   * Method to release the textures of all pages, has to be called on the render thread, the atlas
+   * can not be used afterwards
+   */
+  public void delete() {
+    deleted = true;
+    generation++;
+    for (AtlasPage page : pages) {
+      page.delete();
+    }
+    pages.clear();
+  }
+
+  /**
+   * Method to return the generation of this atlas, it changes whenever a page is evicted so
+   * retained geometry which refers to the atlas has to be rebuilt
+   *
+   * @return The generation of the atlas
+   */
+  public int generation() {
+    return generation;
+  }
+
+  /**
+   * Method to check if the textures of this atlas were released
+   *
+   * @return If the atlas was deleted
+   */
+  public boolean isDeleted() {
+    return deleted;
+  }
+
+  /**
+   * Method to return the alpha of the base page, only available until it is uploaded
+   *
+   * @return The alpha of every texel of the base page
+   */
+  ByteBuffer basePixels() {
+    return basePixels;
+  }
+
+  int solidX() {
+    return solidX;
+  }
+
+  int solidY() {
+    return solidY;
+  }
+
+  /**
+   * Method to return the glyph of a code point, it is rasterized if it is not in the atlas yet
+   *
+   * @param codePoint The code point
+   * @return The glyph of the code point
+   */
+  public FontCharacter glyphOf(int codePoint) {
+    FontCharacter[] block = glyphs[codePoint >> 8];
+    if (block != null) {
+      FontCharacter fontCharacter = block[codePoint & 0xFF];
+      if (fontCharacter != null) {
+        return fontCharacter;
+      }
+    }
+    return load(codePoint);
+  }
+
+  /**
+   * Method to return the glyph of a code point without rasterizing it, this only reads the atlas
+   * and can run on any thread while the atlas is not changed on the render thread
+   *
+   * @param codePoint The code point
+   * @return The glyph of the code point or the missing glyph if it is not in the atlas
+   */
+  public FontCharacter residentGlyphOf(int codePoint) {
+    FontCharacter[] block = glyphs[codePoint >> 8];
+    FontCharacter fontCharacter = block != null ? block[codePoint & 0xFF] : null;
+    return fontCharacter != null ? fontCharacter : glyphs[0][MISSING_GLYPH];
+  }
+
+  /**
+   * Method to rasterize a missing glyph and upload only its region of the page
+   *
+   * @param codePoint The code point of the glyph
+   * @return The glyph of the code point
+   */
+  private FontCharacter load(int codePoint) {
+    FontCharacter fontCharacter = create(codePoint);
+    int width = (int) fontCharacter.width;
+    int height = (int) fontCharacter.height;
+    if (!currentPage.allocate(width, height, fontCharacter)) {
+      // Continue on a new page if the current one is full
+      AtlasPage page = pageOf(width, height, fontCharacter);
+      if (page == null) {
+        // The glyph does not even fit on the largest page, it is drawn as the missing glyph
+        FontCharacter missing = glyphOf(MISSING_GLYPH);
+        put(codePoint, missing);
+        return missing;
+      }
+      evict((long) page.width() * page.height());
+      currentPage = page;
+      currentPage.allocateTexture(linearFiltering || distanceField);
+      pages.add(currentPage);
+    }
+    BufferedImage image = rasterizer().rasterize(codePoint);
+    if (distanceField) {
+      DistanceField.encode(pixelsOf(image), image.getWidth(), image.getHeight());
+    }
+    currentPage.upload(image, fontCharacter.x, fontCharacter.y);
+    currentPage.lastUsed = Gl.backend().time();
+    register(currentPage, codePoint, fontCharacter);
+    return fontCharacter;
+  }
+
+  /**
+   * Method to create a new page which fits a glyph, glyphs which are larger than a normal page get
+   * a larger page of their own up to the maximum page size
+   *
+   * @param width  The width of the glyph cell
+   * @param height The height of the glyph cell
+   * @param out    The character which receives the position of the cell
+   * @return The page with the allocated cell or null if the glyph does not fit on any page
+   */
+  private static AtlasPage pageOf(int width, int height, FontCharacter out) {
+    for (int size = PAGE_SIZE; size <= MAX_PAGE_SIZE; size <<= 1) {
+      AtlasPage page = new AtlasPage(size, size);
+      if (page.allocate(width, height, out)) {
+        return page;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Method to evict the least recently used pages until the requested memory fits under the cap,
+   * the base page and pages which were used in the last second are never evicted
+   *
+   * @param requested The amount of memory in bytes which will be allocated
+   */
+  private void evict(long requested) {
+    long now = Gl.backend().time();
+    while (memoryUsage() + requested > memoryCap) {
+      AtlasPage leastRecentlyUsed = null;
+      for (AtlasPage page : pages) {
+        if (page != basePage && now - page.lastUsed > EVICTION_DELAY && (
+          leastRecentlyUsed == null || page.lastUsed < leastRecentlyUsed.lastUsed)) {
+          leastRecentlyUsed = page;
+        }
+      }
+      if (leastRecentlyUsed == null) {
+        return;
+      }
+      // Remove all glyphs of the page, they are rasterized again when they are used
+      for (int i = 0; i < leastRecentlyUsed.glyphCount(); i++) {
+        int codePoint = leastRecentlyUsed.codePointAt(i);
+        glyphs[codePoint >> 8][codePoint & 0xFF] = null;
+      }
+      leastRecentlyUsed.delete();
+      pages.remove(leastRecentlyUsed);
+      generation++;
+    }
+  }
+
+  private FontCharacter create(int codePoint) {
+    FontCharacter fontCharacter = new FontCharacter();
+    fontCharacter.width = rasterizer().cellWidthOf(codePoint);
+    fontCharacter.height = height;
+    return fontCharacter;
+  }
+
+  static int[] pixelsOf(BufferedImage image) {
+    return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+  }
+
+  private void register(AtlasPage page, int codePoint, FontCharacter fontCharacter) {
+    page.add(codePoint, fontCharacter);
+    put(codePoint, fontCharacter);
+  }
+
+  private void put(int codePoint, FontCharacter fontCharacter) {
+    FontCharacter[] block = glyphs[codePoint >> 8];
+    if (block == null) {
+      block = glyphs[codePoint >> 8] = new FontCharacter[256];
+    }
+    block[codePoint & 0xFF] = fontCharacter;
+  }
+
+  /**
+   * Method to return the memory which all pages use on the gpu
+   *
+   * @return The memory usage in bytes
+   */
+  public long memoryUsage() {
+    long usage = 0;
+    for (AtlasPage page : pages) {
+      usage += page.byteSize();
+    }
+    return usage;
+  }
+
+  /**
+   * Method to set the maximum amount of texture memory before pages are evicted
+   *
+   * @param memoryCap The memory cap in bytes
+   */
+  public void memoryCap(long memoryCap) {
+    this.memoryCap = memoryCap;
+  }
+
+  /**
+   * Method to return the kerning of the glyph pairs of this atlas
+   *
+   * @return The kerning table, it is empty if the font is not kerned
+   */
+  public KerningTable kerning() {
+    return kerning;
+  }
+
+  /**
+   * Method to return the page which contains the solid block
+   *
+   * @return The base page
+   */
+  public AtlasPage basePage() {
+    return basePage;
+  }
+
+  /**
+   * Method to return the horizontal texture coordinate of the center of the solid block
+   *
+   * @return The u coordinate of the solid block
+   */
+  public float solidU() {
+    return (solidX + SOLID_BLOCK_SIZE / 2f) / basePage.width();
+  }
+
+  /**
+   * Method to return the vertical texture coordinate of the center of the solid block
+   *
+   * @return The v coordinate of the solid block
+   */
+  public float solidV() {
+    return (solidY + SOLID_BLOCK_SIZE / 2f) / basePage.height();
+  }
+
+  /**
+   * Method to check if this atlas stores distance fields
+   *
+   * @return If the glyphs are stored as distance fields
+   */
+  public boolean isDistanceField() {
+    return distanceField;
+  }
+
+  /**
+   * Method to set the filtering of the pages which are allocated from now on, distance fields are
+   * always filtered linearly as their edges are reconstructed from interpolated distances
+   *
+   * @param linearFiltering Defines if the pages are sampled with linear filtering
+   */
+  void setLinearFiltering(boolean linearFiltering) {
+    this.linearFiltering = linearFiltering;
+  }
+
+  /**
+   * Method to return the height of the glyph cells
+   *
+   * @return The height of the glyphs
+   */
+  public int height() {
+    return height;
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import static org.lwjgl.opengl.GL11.GL_QUADS;
+
+import de.lennox.fancytags.render.GlStateTracker;
+import de.lennox.fancytags.render.LabelStats;
+import de.lennox.fancytags.render.LabelTransform;
+import de.lennox.fancytags.render.gl.Gl;
+import java.util.Arrays;
+import net.minecraft.client.renderer.WorldRenderer;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+
+/**
+ * Collects textured and colored quads in client-side vertex buffers and submits them with a single
+ * draw call per texture
+ */
+public class GlyphBatch {
+
+  private final int initialSize;
+  private int[] textures = new int[4];
+  private WorldRenderer[] buffers = new WorldRenderer[4];
+  private int textureCount;
+  private int current = -1;
+  private LabelTransform transform;
+
+  /**
+   * Constructs a {@link GlyphBatch}
+   *
+   * @param initialSize The initial size of every vertex buffer in bytes, they grow if needed
+   */
+  public GlyphBatch(int initialSize) {
+    this.initialSize = initialSize;
+  }
+
+  /**
+   * Method to set the transform which is applied to all following quads
+   *
+   * @param transform The transform of the quads, null if they are already in the target space
+   */
+  public void transform(LabelTransform transform) {
+    this.transform = transform;
+  }
+
+  /**
+   * Method to add a textured quad to the batch
+   *
+   * @param texture The gl texture the quad samples
+   * @param x       The x position of the quad
+   * @param y       The y position of the quad
+   * @param width   The width of the quad
+   * @param height  The height of the quad
+   * @param u0      The left texture coordinate
+   * @param v0      The top texture coordinate
+   * @param u1      The right texture coordinate
+   * @param v1      The bottom texture coordinate
+   * @param color   The color of the quad as argb
+   */
+  public void quad(int texture, double x, double y, double width, double height, float u0,
+    float v0, float u1, float v1, int color) {
+    WorldRenderer buffer = bufferOf(texture);
+    int r = color >> 16 & 0xFF;
+    int g = color >> 8 & 0xFF;
+    int b = color & 0xFF;
+    int a = color >>> 24;
+    vertex(buffer, x, y, u0, v0, r, g, b, a);
+    vertex(buffer, x, y + height, u0, v1, r, g, b, a);
+    vertex(buffer, x + width, y + height, u1, v1, r, g, b, a);
+    vertex(buffer, x + width, y, u1, v0, r, g, b, a);
+  }
+
+  /**
+   * Method to return the buffer of a texture, a new one is started if the texture was not used in
+   * this batch yet
+   */
+  private WorldRenderer bufferOf(int texture) {
+    // Consecutive quads almost always share the texture
+    if (current >= 0 && textures[current] == texture) {
+      return buffers[current];
+    }
+    for (int i = 0; i < textureCount; i++) {
+      if (textures[i] == texture) {
+        current = i;
+        return buffers[i];
+      }
+    }
+    if (textureCount == textures.length) {
+      textures = Arrays.copyOf(textures, textureCount * 2);
+      buffers = Arrays.copyOf(buffers, textureCount * 2);
+    }
+    if (buffers[textureCount] == null) {
+      buffers[textureCount] = new WorldRenderer(initialSize);
+    }
+    textures[textureCount] = texture;
+    buffers[textureCount].begin(GL_QUADS, DefaultVertexFormats.POSITION_TEX_COLOR);
+    current = textureCount++;
+    return buffers[current];
+  }
+
+  /**
+   * Method to add a single vertex to a buffer, the current transform is applied to its position
+   */
+  private void vertex(WorldRenderer buffer, double x, double y, float u, float v, int r, int g,
+    int b, int a) {
+    if (transform == null) {
+      buffer.pos(x, y, 0);
+    } else {
+      buffer.pos(transform.transformX(x, y), transform.transformY(x, y),
+        transform.transformZ(x, y));
+    }
+    buffer.tex(u, v).color(r, g, b, a).endVertex();
+  }
+
+  /**
+   * Method to submit all collected quads with one draw call per texture and reset the batch
+   */
+  public void draw() {
+    submit(false);
+  }
+
+  /**
+   * Method to record all collected quads into the display list which is currently compiled and
+   * reset the batch, textures are bound directly as the state manager would track binds which are
+   * only recorded
+   *
+   * @return The amount of recorded draw calls, every one of them also binds its texture
+   */
+  public int compile() {
+    return submit(true);
+  }
+
+  /**
+   * Method to discard all collected quads without drawing them
+   */
+  public void clear() {
+    for (int i = 0; i < textureCount; i++) {
+      buffers[i].finishDrawing();
+      buffers[i].reset();
+    }
+    textureCount = 0;
+    current = -1;
+  }
+
+  private int submit(boolean recording) {
+    int draws = 0;
+    for (int i = 0; i < textureCount; i++) {
+      WorldRenderer buffer = buffers[i];
+      buffer.finishDrawing();
+      if (buffer.getVertexCount() > 0) {
+        if (recording) {
+          Gl.backend().bindTextureDirect(textures[i]);
+        } else {
+          GlStateTracker.bindTexture(textures[i]);
+        }
+        // The backend resets the buffer after drawing
+        Gl.backend().draw(buffer);
+        draws++;
+      } else {
+        buffer.reset();
+      }
+    }
+    textureCount = 0;
+    current = -1;
+    if (!recording) {
+      LabelStats.add(LabelStats.DRAW_CALLS, draws);
+    }
+    return draws;
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextAttribute;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+
+/**
+ * Rasterizes glyphs of a font with {@link Graphics2D}, code points which the font can not display
+ * are rasterized with the dialog font of the same size
+ */
+public class GlyphRasterizer {
+
+  static final int PADDING = 8;
+  // Smaller offsets are rounding noise of the layout
+  private static final float KERNING_THRESHOLD = 0.05F;
+  private final Font font;
+  private final Font fallbackFont;
+  private final boolean antiAlias;
+  private final boolean fractionalMetrics;
+  private final FontMetrics metrics;
+  private final FontMetrics fallbackMetrics;
+  private final int height;
+
+  /**
+   * Constructs a {@link GlyphRasterizer}
+   *
+   * @param font              The font which will be rasterized
+   * @param antiAlias         Defines if anti aliasing should be used
+   * @param fractionalMetrics Defines if fractional metrics should be used
+   */
+  public GlyphRasterizer(Font font, boolean antiAlias, boolean fractionalMetrics) {
+    this.font = font;
+    this.fallbackFont = new Font(Font.DIALOG, font.getStyle(), font.getSize());
+    this.antiAlias = antiAlias;
+    this.fractionalMetrics = fractionalMetrics;
+    // A tiny image is enough to receive the font metrics
+    Graphics2D graphics2D = prepare(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), font);
+    this.metrics = graphics2D.getFontMetrics();
+    this.fallbackMetrics = graphics2D.getFontMetrics(fallbackFont);
+    graphics2D.dispose();
+    this.height = (int) Math.ceil(metrics.getStringBounds("A", graphics2D).getHeight());
+  }
+
+  /**
+   * Method to return the height of every glyph cell
+   *
+   * @return The height of the glyph cells
+   */
+  public int height() {
+    return height;
+  }
+
+  /**
+   * Method to return the width of the cell of a glyph including its padding
+   *
+   * @param codePoint The code point of the glyph
+   * @return The width of the glyph cell
+   */
+  public int cellWidthOf(int codePoint) {
+    return metricsOf(codePoint).stringWidth(stringOf(codePoint)) + PADDING;
+  }
+
+  /**
+   * Method to rasterize a glyph into its own image, the image includes the empty gap right of and
+   * below the cell so no undefined texels are sampled next to it
+   *
+   * @param codePoint The code point of the glyph
+   * @return The image of the glyph cell
+   */
+  public BufferedImage rasterize(int codePoint) {
+    BufferedImage image = new BufferedImage(cellWidthOf(codePoint) + AtlasPage.GAP,
+      height + AtlasPage.GAP, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics2D = prepare(image, fontOf(codePoint));
+    draw(graphics2D, codePoint, 0, 0);
+    graphics2D.dispose();
+    return image;
+  }
+
+  /**
+   * Method to draw a glyph into a prepared context
+   *
+   * @param graphics2D The context which was created by {@link #prepare}
+   * @param codePoint  The code point of the glyph
+   * @param x          The x position of the glyph cell
+   * @param y          The y position of the glyph cell
+   */
+  public void draw(Graphics2D graphics2D, int codePoint, int x, int y) {
+    Font glyphFont = fontOf(codePoint);
+    if (graphics2D.getFont() != glyphFont) {
+      graphics2D.setFont(glyphFont);
+    }
+    graphics2D.drawString(stringOf(codePoint), x + 2f, y + metrics.getAscent());
+  }
+
+  /**
+   * Method to prepare a graphics 2d ctx which draws white glyphs of this rasterizer
+   *
+   * @param image The image which will be drawn to
+   * @param font  The initial font of the ctx
+   * @return The prepared ctx
+   */
+  public Graphics2D prepare(BufferedImage image, Font font) {
+    Graphics2D graphics2D = (Graphics2D) image.getGraphics();
+    // Set the antialiasing of the ctx
+    graphics2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+      antiAlias ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+    // Set the fractional metrics of the ctx
+    graphics2D.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
+      fractionalMetrics ? RenderingHints.VALUE_FRACTIONALMETRICS_ON
+        : RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+    // Set the font and the primary color of the ctx
+    graphics2D.setFont(font);
+    graphics2D.setColor(new Color(-1));
+    return graphics2D;
+  }
+
+  /**
+   * Method to measure the kerning of all pairs of a range of code points, every pair is laid out
+   * once with kerning enabled and compared to the advance of its first glyph, this is slow and only
+   * done when an atlas is built
+   *
+   * @param first The first code point of the range
+   * @param last  The last code point of the range
+   * @return The kerning of all pairs which the font kerns
+   */
+  public KerningTable kerningOf(int first, int last) {
+    FontRenderContext context = metrics.getFontRenderContext();
+    Font kerningFont = font.deriveFont(
+      Collections.singletonMap(TextAttribute.KERNING, TextAttribute.KERNING_ON));
+    int count = last - first + 1;
+    // The advance of every glyph on its own, 0 for glyphs the font can not display
+    float[] advances = new float[count];
+    char[] pair = new char[2];
+    for (int i = 0; i < count; i++) {
+      if (font.canDisplay(first + i)) {
+        pair[0] = (char) (first + i);
+        advances[i] = (float) font.layoutGlyphVector(context, pair, 0, 1,
+          Font.LAYOUT_LEFT_TO_RIGHT).getGlyphPosition(1).getX();
+      }
+    }
+    KerningTable kerning = new KerningTable(64);
+    for (int left = 0; left < count; left++) {
+      if (advances[left] == 0) {
+        continue;
+      }
+      pair[0] = (char) (first + left);
+      for (int right = 0; right < count; right++) {
+        if (advances[right] == 0) {
+          continue;
+        }
+        pair[1] = (char) (first + right);
+        GlyphVector glyphVector = kerningFont.layoutGlyphVector(context, pair, 0, 2,
+          Font.LAYOUT_LEFT_TO_RIGHT);
+        // Ligatures merge the pair into one glyph, those are not kerned
+        if (glyphVector.getNumGlyphs() != 2) {
+          continue;
+        }
+        float value = (float) glyphVector.getGlyphPosition(1).getX() - advances[left];
+        if (Math.abs(value) >= KERNING_THRESHOLD) {
+          kerning.put(first + left, first + right, value);
+        }
+      }
+    }
+    return kerning;
+  }
+
+  /**
+   * Method to return the font of this rasterizer
+   *
+   * @return The font
+   */
+  public Font font() {
+    return font;
+  }
+
+  private Font fontOf(int codePoint) {
+    return font.canDisplay(codePoint) ? font : fallbackFont;
+  }
+
+  private FontMetrics metricsOf(int codePoint) {
+    return font.canDisplay(codePoint) ? metrics : fallbackMetrics;
+  }
+
+  private static String stringOf(int codePoint) {
+    return new String(Character.toChars(codePoint));
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import java.util.Arrays;
+
+/**
+ * Kerning of glyph pairs in an open addressed table with linear probing, a pair of code points of
+ * the basic multilingual plane is packed into one int key so lookups neither box nor allocate
+ */
+public final class KerningTable {
+
+  static final KerningTable EMPTY = new KerningTable(0);
+  // Pairs of two null characters are never kerned, a zero key marks an empty slot
+  private static final int EMPTY_KEY = 0;
+  private int[] keys;
+  private float[] values;
+  private int shift;
+  private int size;
+
+  /**
+   * Constructs a {@link KerningTable}
+   *
+   * @param expectedPairs The amount of pairs the table should hold without growing
+   */
+  KerningTable(int expectedPairs) {
+    allocate(Math.max(4, Integer.highestOneBit(Math.max(1, expectedPairs) * 2 - 1) << 1));
+  }
+
+  private void allocate(int capacity) {
+    this.keys = new int[capacity];
+    this.values = new float[capacity];
+    this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+  }
+
+  /**
+   * Method to set the kerning of a pair, pairs outside of the basic multilingual plane are ignored
+   *
+   * @param left  The code point of the first glyph
+   * @param right The code point of the second glyph
+   * @param value The offset which is added to the advance of the first glyph
+   */
+  void put(int left, int right, float value) {
+    if ((left | right) > 0xFFFF) {
+      return;
+    }
+    // Keep the load below one half so probes stay short
+    if ((size + 1) * 2 > keys.length) {
+      int[] oldKeys = keys;
+      float[] oldValues = values;
+      allocate(keys.length * 2);
+      size = 0;
+      for (int slot = 0; slot < oldKeys.length; slot++) {
+        if (oldKeys[slot] != EMPTY_KEY) {
+          insert(oldKeys[slot], oldValues[slot]);
+        }
+      }
+    }
+    insert(left << 16 | right, value);
+  }
+
+  private void insert(int key, float value) {
+    int mask = keys.length - 1;
+    int slot = slotOf(key);
+    while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    if (keys[slot] == EMPTY_KEY) {
+      size++;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+  }
+
+  /**
+   * Method to return the kerning of a pair
+   *
+   * @param left  The code point of the first glyph
+   * @param right The code point of the second glyph
+   * @return The offset which is added to the advance of the first glyph, 0 if the pair is not
+   * kerned
+   */
+  public float valueOf(int left, int right) {
+    if (size == 0 || (left | right) > 0xFFFF) {
+      return 0;
+    }
+    int key = left << 16 | right;
+    int mask = keys.length - 1;
+    int slot = slotOf(key);
+    int stored;
+    while ((stored = keys[slot]) != EMPTY_KEY) {
+      if (stored == key) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return 0;
+  }
+
+  private int slotOf(int key) {
+    // Fibonacci hashing spreads the packed pairs over the high bits
+    return (key * 0x9E3779B9) >>> shift;
+  }
+
+  /**
+   * Method to return the amount of kerned pairs
+   *
+   * @return The amount of pairs
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Method to return the packed keys of all pairs so the table can be cached
+   *
+   * @return The keys with the first code point in the high and the second in the low 16 bits
+   */
+  int[] packedPairs() {
+    int[] pairs = new int[size];
+    int index = 0;
+    for (int key : keys) {
+      if (key != EMPTY_KEY) {
+        pairs[index++] = key;
+      }
+    }
+    Arrays.sort(pairs);
+    return pairs;
+  }
+
+  /**
+   * Method to return the kerning of a packed pair
+   *
+   * @param packedPair The key of the pair
+   * @return The kerning of the pair
+   */
+  float valueOf(int packedPair) {
+    return valueOf(packedPair >>> 16, packedPair & 0xFFFF);
+  }
+}
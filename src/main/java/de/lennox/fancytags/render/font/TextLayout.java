@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed layout of a formatted string, the text is split into runs of glyphs which share the
+ * same color and style
+ */
+public class TextLayout {
+
+  public static final int STRIKETHROUGH = 1;
+  public static final int UNDERLINE = 1 << 1;
+  public static final int OBFUSCATED = 1 << 2;
+  public static final int BOLD = 1 << 3;
+  public static final int ITALIC = 1 << 4;
+  private static final String FORMAT_CODES = "0123456789abcdefklmnor";
+  private final int[] glyphs;
+  private final float[] positions;
+  private final int[] runStarts;
+  private final int[] runColors;
+  private final int[] runStyles;
+  private final int runCount;
+  private final float width;
+  private final boolean obfuscated;
+
+  private TextLayout(int[] glyphs, float[] positions, int[] runStarts, int[] runColors,
+    int[] runStyles, int runCount, float width, boolean obfuscated) {
+    this.glyphs = glyphs;
+    this.positions = positions;
+    this.runStarts = runStarts;
+    this.runColors = runColors;
+    this.runStyles = runStyles;
+    this.runCount = runCount;
+    this.width = width;
+    this.obfuscated = obfuscated;
+  }
+
+  /**
+   * Method to parse the layout of a formatted string
+   *
+   * @param text         The formatted text
+   * @param fontRenderer The font renderer which provides the glyph advances and kerning, missing
+   *                     glyphs are rasterized
+   * @return The layout of the text
+   */
+  static TextLayout of(String text, FontRenderer fontRenderer) {
+    int size = text.length();
+    int[] glyphs = new int[size];
+    float[] positions = new float[size];
+    int[] runStarts = new int[4];
+    int[] runColors = new int[4];
+    int[] runStyles = new int[4];
+    int glyphCount = 0;
+    int runCount = 0;
+    // The color index of the current run, -1 is the color the text is drawn with
+    int color = -1;
+    int style = 0;
+    // The code point of the last glyph, glyphs of different styles are not kerned
+    int previous = -1;
+    boolean obfuscated = false;
+    float x = 0;
+    for (int i = 0; i < size; i++) {
+      char character = text.charAt(i);
+      if (character == '§') {
+        // A trailing format character has no code
+        if (++i >= size) {
+          break;
+        }
+        int formatIndex = formatIndexOf(text.charAt(i));
+        int nextStyle = styleOf(formatIndex, style);
+        if (nextStyle != style) {
+          previous = -1;
+        }
+        style = nextStyle;
+        if (formatIndex < 16) {
+          // Unknown codes are white
+          color = formatIndex < 0 ? 15 : formatIndex;
+        } else if (formatIndex == 21) {
+          // The reset code restores the color the text is drawn with
+          color = -1;
+        }
+        continue;
+      }
+      // Start a new run if the format changed since the last glyph
+      if (runCount == 0 || runColors[runCount - 1] != color || runStyles[runCount - 1] != style) {
+        if (runCount == runStarts.length) {
+          runStarts = Arrays.copyOf(runStarts, runCount * 2);
+          runColors = Arrays.copyOf(runColors, runCount * 2);
+          runStyles = Arrays.copyOf(runStyles, runCount * 2);
+        }
+        runStarts[runCount] = glyphCount;
+        runColors[runCount] = color;
+        runStyles[runCount] = style;
+        runCount++;
+      }
+      int codePoint = Character.codePointAt(text, i);
+      i += Character.charCount(codePoint) - 1;
+      // Obfuscated characters keep their code point, a glyph of the same width is drawn instead
+      obfuscated |= (style & OBFUSCATED) != 0;
+      x += fontRenderer.kerningOf(previous, codePoint, style);
+      previous = codePoint;
+      glyphs[glyphCount] = codePoint;
+      positions[glyphCount] = x;
+      glyphCount++;
+      x += fontRenderer.advanceOf(codePoint, style);
+    }
+    return new TextLayout(Arrays.copyOf(glyphs, glyphCount), Arrays.copyOf(positions, glyphCount),
+      runStarts, runColors, runStyles, runCount, x, obfuscated);
+  }
+
+  /**
+   * Method to return the index of a format code
+   *
+   * @param code The character after the format character
+   * @return The index of the code, colors are below 16 and unknown codes are -1
+   */
+  static int formatIndexOf(char code) {
+    return FORMAT_CODES.indexOf(code);
+  }
+
+  /**
+   * Method to apply a format code to the current style, colors, unknown codes and the reset code
+   * clear all styles
+   *
+   * @param formatIndex The index of the format code
+   * @param style       The style flags before the code
+   * @return The style flags after the code
+   */
+  static int styleOf(int formatIndex, int style) {
+    switch (formatIndex) {
+      case 16:
+        return style | OBFUSCATED;
+      case 17:
+        return style | BOLD;
+      case 18:
+        return style | STRIKETHROUGH;
+      case 19:
+        return style | UNDERLINE;
+      case 20:
+        return style | ITALIC;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Method to return the amount of glyphs of the text
+   *
+   * @return The amount of glyphs
+   */
+  public int glyphCount() {
+    return glyphs.length;
+  }
+
+  /**
+   * Method to return the width of the text
+   *
+   * @return The width of the text
+   */
+  public float width() {
+    return width;
+  }
+
+  /**
+   * Method to return the amount of runs in this layout
+   *
+   * @return The amount of runs
+   */
+  public int runCount() {
+    return runCount;
+  }
+
+  /**
+   * Method to return the index of the first glyph of a run
+   *
+   * @param run The index of the run
+   * @return The index of the first glyph
+   */
+  public int runStart(int run) {
+    return runStarts[run];
+  }
+
+  /**
+   * Method to return the index after the last glyph of a run
+   *
+   * @param run The index of the run
+   * @return The index after the last glyph
+   */
+  public int runEnd(int run) {
+    return run + 1 < runCount ? runStarts[run + 1] : glyphs.length;
+  }
+
+  /**
+   * Method to return the color code index of a run
+   *
+   * @param run The index of the run
+   * @return The color code index, -1 if the run uses the color the text is drawn with
+   */
+  public int runColor(int run) {
+    return runColors[run];
+  }
+
+  /**
+   * Method to return the style flags of a run
+   *
+   * @param run The index of the run
+   * @return The style flags
+   */
+  public int runStyle(int run) {
+    return runStyles[run];
+  }
+
+  /**
+   * Method to check if the layout contains obfuscated runs, those change whenever they are drawn
+   *
+   * @return If the layout contains obfuscated glyphs
+   */
+  public boolean isObfuscated() {
+    return obfuscated;
+  }
+
+  /**
+   * Method to return a glyph of the layout
+   *
+   * @param index The index of the glyph
+   * @return The code point which is drawn, obfuscated glyphs are replaced when they are drawn
+   */
+  public int glyph(int index) {
+    return glyphs[index];
+  }
+
+  /**
+   * Method to return the position of a glyph relative to the start of the text
+   *
+   * @param index The index of the glyph
+   * @return The x position of the glyph
+   */
+  public float position(int index) {
+    return positions[index];
+  }
+}
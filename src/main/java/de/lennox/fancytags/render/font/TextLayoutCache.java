@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least recently used cache of text layouts keyed by their formatted string, it is not
+ * thread safe and only used on the render thread, the layouts themselves are immutable and can be
+ * read from any thread
+ */
+public class TextLayoutCache {
+
+  private final FontRenderer fontRenderer;
+  private final LinkedHashMap<String, TextLayout> layouts;
+
+  /**
+   * Constructs a {@link TextLayoutCache}
+   *
+   * @param fontRenderer The font renderer which the layouts are created for
+   * @param capacity     The maximum amount of cached layouts
+   */
+  public TextLayoutCache(FontRenderer fontRenderer, int capacity) {
+    this.fontRenderer = fontRenderer;
+    this.layouts = new LinkedHashMap<String, TextLayout>(capacity * 4 / 3 + 1, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, TextLayout> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Method to return the layout of a text, it is created if it is not cached yet, a layout during
+   * which an atlas arrived is returned but not cached
+   *
+   * @param text The formatted text
+   * @return The layout of the text
+   */
+  public TextLayout layoutOf(String text) {
+    TextLayout layout = layouts.get(text);
+    if (layout == null) {
+      int generation = fontRenderer.generation();
+      layout = TextLayout.of(text, fontRenderer);
+      // Requesting a style can set its atlas right away, the layout mixes both atlases then
+      if (fontRenderer.generation() == generation) {
+        layouts.put(text, layout);
+      }
+    }
+    return layout;
+  }
+
+  /**
+   * Method to remove all cached layouts
+   */
+  public void clear() {
+    layouts.clear();
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.gl;
+
+/**
+ * Holds the {@link GlBackend} which the renderers use, this is the lwjgl backend unless another
+ * one is installed before the first font is created
+ */
+public final class Gl {
+
+  private static GlBackend backend = new LwjglBackend();
+
+  private Gl() {
+  }
+
+  /**
+   * Method to return the current backend
+   *
+   * @return The backend
+   */
+  public static GlBackend backend() {
+    return backend;
+  }
+
+  /**
+   * Method to replace the backend, textures of the old backend are not carried over
+   *
+   * @param backend The new backend
+   */
+  public static void setBackend(GlBackend backend) {
+    Gl.backend = backend;
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.gl;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import net.minecraft.client.renderer.WorldRenderer;
+
+/**
+ * The platform calls of the font pipeline and the label renderers, they reach lwjgl only through
+ * this interface so their logic can run without a gl context
+ */
+public interface GlBackend {
+
+  /**
+   * Method to return the time which is used to track the usage of fonts, atlases and pages
+   *
+   * @return The time in milliseconds
+   */
+  long time();
+
+  /**
+   * Method to create an alpha texture which is clamped to its edges, the texture may be left bound
+   *
+   * @param width  The width of the texture
+   * @param height The height of the texture
+   * @param linear Defines if the texture is sampled with linear filtering, otherwise the nearest
+   *               texel is used
+   * @return The id of the texture
+   */
+  int createAlphaTexture(int width, int height, boolean linear);
+
+  /**
+   * Method to upload the alpha of a region of a texture, the texture may be left bound
+   *
+   * @param texture The id of the texture
+   * @param x       The x position of the region
+   * @param y       The y position of the region
+   * @param width   The width of the region
+   * @param height  The height of the region
+   * @param pixels  One byte per texel, rows are not padded
+   */
+  void uploadAlpha(int texture, int x, int y, int width, int height, ByteBuffer pixels);
+
+  /**
+   * Method to release a texture
+   *
+   * @param texture The id of the texture
+   */
+  void deleteTexture(int texture);
+
+  /**
+   * Method to enable or disable a capability, the calls go through the state manager of the game
+   * if it tracks the capability
+   *
+   * @param capability The gl capability, one of GL_BLEND, GL_DEPTH_TEST, GL_LIGHTING and
+   *                   GL_TEXTURE_2D
+   * @param enabled    The wanted state
+   */
+  void capability(int capability, boolean enabled);
+
+  /**
+   * Method to enable or disable depth writes
+   *
+   * @param enabled The wanted state
+   */
+  void depthMask(boolean enabled);
+
+  /**
+   * Method to set the separate blend function
+   *
+   * @param sourceColor      The source factor of the color
+   * @param destinationColor The destination factor of the color
+   * @param sourceAlpha      The source factor of the alpha
+   * @param destinationAlpha The destination factor of the alpha
+   */
+  void blendFunction(int sourceColor, int destinationColor, int sourceAlpha,
+    int destinationAlpha);
+
+  /**
+   * Method to set the current color
+   *
+   * @param red   The red component
+   * @param green The green component
+   * @param blue  The blue component
+   * @param alpha The alpha component
+   */
+  void color(float red, float green, float blue, float alpha);
+
+  /**
+   * Method to bind a texture to the first texture unit through the state manager of the game
+   *
+   * @param texture The id of the texture
+   */
+  void bindTexture(int texture);
+
+  /**
+   * Method to bind a texture without the state manager of the game, used while display lists are
+   * compiled as the state manager would skip binds which are only recorded
+   *
+   * @param texture The id of the texture
+   */
+  void bindTextureDirect(int texture);
+
+  /**
+   * Method to switch the shader program
+   *
+   * @param program The id of the program, 0 for the fixed function pipeline
+   */
+  void useProgram(int program);
+
+  /**
+   * Method to draw the vertices of a buffer, the buffer is reset afterwards
+   *
+   * @param buffer The buffer, drawing of it has to be finished
+   */
+  void draw(WorldRenderer buffer);
+
+  /**
+   * Method to allocate consecutive display lists
+   *
+   * @param count The amount of lists
+   * @return The id of the first list
+   */
+  int createLists(int count);
+
+  /**
+   * Method to start compiling a display list, all following draws are recorded into it
+   *
+   * @param list The id of the list
+   */
+  void beginList(int list);
+
+  /**
+   * Method to finish compiling the current display list
+   */
+  void endList();
+
+  /**
+   * Method to execute a display list
+   *
+   * @param list The id of the list
+   */
+  void callList(int list);
+
+  /**
+   * Method to release consecutive display lists
+   *
+   * @param list  The id of the first list
+   * @param count The amount of lists
+   */
+  void deleteLists(int list, int count);
+
+  /**
+   * Method to push the current model view matrix
+   */
+  void pushMatrix();
+
+  /**
+   * Method to pop the model view matrix
+   */
+  void popMatrix();
+
+  /**
+   * Method to multiply the model view matrix
+   *
+   * @param matrix The column major matrix
+   */
+  void multMatrix(FloatBuffer matrix);
+
+  /**
+   * Method to translate the model view matrix
+   *
+   * @param x The x translation
+   * @param y The y translation
+   * @param z The z translation
+   */
+  void translate(float x, float y, float z);
+
+  /**
+   * Method to rotate the model view matrix
+   *
+   * @param angle The angle in degrees
+   * @param x     The x component of the axis
+   * @param y     The y component of the axis
+   * @param z     The z component of the axis
+   */
+  void rotate(float angle, float x, float y, float z);
+
+  /**
+   * Method to scale the model view matrix
+   *
+   * @param x The x scale
+   * @param y The y scale
+   * @param z The z scale
+   */
+  void scale(float x, float y, float z);
+
+  /**
+   * Method to set the current normal
+   *
+   * @param x The x component of the normal
+   * @param y The y component of the normal
+   * @param z The z component of the normal
+   */
+  void normal(float x, float y, float z);
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.gl;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import net.minecraft.client.renderer.WorldRenderer;
+
+/**
+ * A backend without a gl context, textures and display lists are only handed out as ids and all
+ * other calls are dropped, it is used to run the font pipeline in benchmarks
+ */
+public class HeadlessBackend implements GlBackend {
+
+  private int nextTexture = 1;
+  private int nextList = 1;
+
+  @Override
+  public long time() {
+    return System.nanoTime() / 1000000L;
+  }
+
+  @Override
+  public int createAlphaTexture(int width, int height, boolean linear) {
+    return nextTexture++;
+  }
+
+  @Override
+  public void uploadAlpha(int texture, int x, int y, int width, int height, ByteBuffer pixels) {
+  }
+
+  @Override
+  public void deleteTexture(int texture) {
+  }
+
+  @Override
+  public void capability(int capability, boolean enabled) {
+  }
+
+  @Override
+  public void depthMask(boolean enabled) {
+  }
+
+  @Override
+  public void blendFunction(int sourceColor, int destinationColor, int sourceAlpha,
+    int destinationAlpha) {
+  }
+
+  @Override
+  public void color(float red, float green, float blue, float alpha) {
+  }
+
+  @Override
+  public void bindTexture(int texture) {
+  }
+
+  @Override
+  public void bindTextureDirect(int texture) {
+  }
+
+  @Override
+  public void useProgram(int program) {
+  }
+
+  @Override
+  public void draw(WorldRenderer buffer) {
+    buffer.reset();
+  }
+
+  @Override
+  public int createLists(int count) {
+    int list = nextList;
+    nextList += count;
+    return list;
+  }
+
+  @Override
+  public void beginList(int list) {
+  }
+
+  @Override
+  public void endList() {
+  }
+
+  @Override
+  public void callList(int list) {
+  }
+
+  @Override
+  public void deleteLists(int list, int count) {
+  }
+
+  @Override
+  public void pushMatrix() {
+  }
+
+  @Override
+  public void popMatrix() {
+  }
+
+  @Override
+  public void multMatrix(FloatBuffer matrix) {
+  }
+
+  @Override
+  public void translate(float x, float y, float z) {
+  }
+
+  @Override
+  public void rotate(float angle, float x, float y, float z) {
+  }
+
+  @Override
+  public void scale(float x, float y, float z) {
+  }
+
+  @Override
+  public void normal(float x, float y, float z) {
+  }
+}
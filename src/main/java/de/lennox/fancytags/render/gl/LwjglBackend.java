@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.gl;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.GLAllocation;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.renderer.OpenGlHelper;
+import net.minecraft.client.renderer.WorldRenderer;
+import net.minecraft.client.renderer.WorldVertexBufferUploader;
+import net.minecraft.client.renderer.texture.TextureUtil;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * The backend of the game which calls lwjgl directly, its calls have to be made on the render
+ * thread
+ */
+public class LwjglBackend implements GlBackend {
+
+  private final WorldVertexBufferUploader uploader = new WorldVertexBufferUploader();
+
+  @Override
+  public long time() {
+    return Minecraft.getSystemTime();
+  }
+
+  @Override
+  public int createAlphaTexture(int width, int height, boolean linear) {
+    int texture = TextureUtil.glGenTextures();
+    GlStateManager.bindTexture(texture);
+    // The sampler settings are only set once
+    int filter = linear ? GL11.GL_LINEAR : GL11.GL_NEAREST;
+    GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, filter);
+    GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, filter);
+    GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL11.GL_CLAMP);
+    GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL11.GL_CLAMP);
+    GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_ALPHA8, width, height, 0, GL11.GL_ALPHA,
+      GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+    return texture;
+  }
+
+  @Override
+  public void uploadAlpha(int texture, int x, int y, int width, int height, ByteBuffer pixels) {
+    GlStateManager.bindTexture(texture);
+    // Rows of single bytes are not aligned to 4 bytes
+    GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+    GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, x, y, width, height, GL11.GL_ALPHA,
+      GL11.GL_UNSIGNED_BYTE, pixels);
+    GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+  }
+
+  @Override
+  public void deleteTexture(int texture) {
+    TextureUtil.deleteTexture(texture);
+  }
+
+  @Override
+  public void capability(int capability, boolean enabled) {
+    switch (capability) {
+      case GL11.GL_BLEND:
+        if (enabled) {
+          GlStateManager.enableBlend();
+        } else {
+          GlStateManager.disableBlend();
+        }
+        break;
+      case GL11.GL_DEPTH_TEST:
+        if (enabled) {
+          GlStateManager.enableDepth();
+        } else {
+          GlStateManager.disableDepth();
+        }
+        break;
+      case GL11.GL_LIGHTING:
+        if (enabled) {
+          GlStateManager.enableLighting();
+        } else {
+          GlStateManager.disableLighting();
+        }
+        break;
+      case GL11.GL_TEXTURE_2D:
+        if (enabled) {
+          GlStateManager.enableTexture2D();
+        } else {
+          GlStateManager.disableTexture2D();
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported capability " + capability);
+    }
+  }
+
+  @Override
+  public void depthMask(boolean enabled) {
+    GlStateManager.depthMask(enabled);
+  }
+
+  @Override
+  public void blendFunction(int sourceColor, int destinationColor, int sourceAlpha,
+    int destinationAlpha) {
+    GlStateManager.tryBlendFuncSeparate(sourceColor, destinationColor, sourceAlpha,
+      destinationAlpha);
+  }
+
+  @Override
+  public void color(float red, float green, float blue, float alpha) {
+    GlStateManager.color(red, green, blue, alpha);
+  }
+
+  @Override
+  public void bindTexture(int texture) {
+    GlStateManager.bindTexture(texture);
+  }
+
+  @Override
+  public void bindTextureDirect(int texture) {
+    GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+  }
+
+  @Override
+  public void useProgram(int program) {
+    OpenGlHelper.glUseProgram(program);
+  }
+
+  @Override
+  public void draw(WorldRenderer buffer) {
+    // The uploader resets the buffer after drawing
+    uploader.draw(buffer);
+  }
+
+  @Override
+  public int createLists(int count) {
+    return GLAllocation.generateDisplayLists(count);
+  }
+
+  @Override
+  public void beginList(int list) {
+    GL11.glNewList(list, GL11.GL_COMPILE);
+  }
+
+  @Override
+  public void endList() {
+    GL11.glEndList();
+  }
+
+  @Override
+  public void callList(int list) {
+    GL11.glCallList(list);
+  }
+
+  @Override
+  public void deleteLists(int list, int count) {
+    GL11.glDeleteLists(list, count);
+  }
+
+  @Override
+  public void pushMatrix() {
+    GlStateManager.pushMatrix();
+  }
+
+  @Override
+  public void popMatrix() {
+    GlStateManager.popMatrix();
+  }
+
+  @Override
+  public void multMatrix(FloatBuffer matrix) {
+    GL11.glMultMatrix(matrix);
+  }
+
+  @Override
+  public void translate(float x, float y, float z) {
+    GlStateManager.translate(x, y, z);
+  }
+
+  @Override
+  public void rotate(float angle, float x, float y, float z) {
+    GlStateManager.rotate(angle, x, y, z);
+  }
+
+  @Override
+  public void scale(float x, float y, float z) {
+    GlStateManager.scale(x, y, z);
+  }
+
+  @Override
+  public void normal(float x, float y, float z) {
+    GL11.glNormal3f(x, y, z);
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.gl;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import net.minecraft.client.renderer.WorldRenderer;
+
+/**
+ * A headless backend which counts and captures every call, it is used to check the amount of
+ * draw calls, state changes and vertices the renderers need without a gl context
+ */
+public class RecordingBackend extends HeadlessBackend {
+
+  private final int[] counts = new int[Call.values().length];
+  private final List<Call> calls = new ArrayList<>();
+  private long vertices;
+  private long uploadedBytes;
+  private int boundTexture;
+
+  @Override
+  public int createAlphaTexture(int width, int height, boolean linear) {
+    record(Call.CREATE_TEXTURE);
+    boundTexture = super.createAlphaTexture(width, height, linear);
+    return boundTexture;
+  }
+
+  @Override
+  public void uploadAlpha(int texture, int x, int y, int width, int height, ByteBuffer pixels) {
+    record(Call.UPLOAD);
+    boundTexture = texture;
+    uploadedBytes += (long) width * height;
+  }
+
+  @Override
+  public void deleteTexture(int texture) {
+    record(Call.DELETE_TEXTURE);
+  }
+
+  @Override
+  public void capability(int capability, boolean enabled) {
+    record(Call.CAPABILITY);
+  }
+
+  @Override
+  public void depthMask(boolean enabled) {
+    record(Call.DEPTH_MASK);
+  }
+
+  @Override
+  public void blendFunction(int sourceColor, int destinationColor, int sourceAlpha,
+    int destinationAlpha) {
+    record(Call.BLEND_FUNCTION);
+  }
+
+  @Override
+  public void color(float red, float green, float blue, float alpha) {
+    record(Call.COLOR);
+  }
+
+  @Override
+  public void bindTexture(int texture) {
+    record(Call.BIND_TEXTURE);
+    boundTexture = texture;
+  }
+
+  @Override
+  public void bindTextureDirect(int texture) {
+    record(Call.BIND_TEXTURE);
+    boundTexture = texture;
+  }
+
+  @Override
+  public void useProgram(int program) {
+    record(Call.USE_PROGRAM);
+  }
+
+  @Override
+  public void draw(WorldRenderer buffer) {
+    record(Call.DRAW);
+    vertices += buffer.getVertexCount();
+    super.draw(buffer);
+  }
+
+  @Override
+  public int createLists(int count) {
+    record(Call.CREATE_LISTS);
+    return super.createLists(count);
+  }
+
+  @Override
+  public void beginList(int list) {
+    record(Call.BEGIN_LIST);
+  }
+
+  @Override
+  public void endList() {
+    record(Call.END_LIST);
+  }
+
+  @Override
+  public void callList(int list) {
+    record(Call.CALL_LIST);
+  }
+
+  @Override
+  public void deleteLists(int list, int count) {
+    record(Call.DELETE_LISTS);
+  }
+
+  @Override
+  public void pushMatrix() {
+    record(Call.PUSH_MATRIX);
+  }
+
+  @Override
+  public void popMatrix() {
+    record(Call.POP_MATRIX);
+  }
+
+  @Override
+  public void multMatrix(FloatBuffer matrix) {
+    record(Call.TRANSFORM);
+  }
+
+  @Override
+  public void translate(float x, float y, float z) {
+    record(Call.TRANSFORM);
+  }
+
+  @Override
+  public void rotate(float angle, float x, float y, float z) {
+    record(Call.TRANSFORM);
+  }
+
+  @Override
+  public void scale(float x, float y, float z) {
+    record(Call.TRANSFORM);
+  }
+
+  @Override
+  public void normal(float x, float y, float z) {
+    record(Call.NORMAL);
+  }
+
+  private void record(Call call) {
+    counts[call.ordinal()]++;
+    calls.add(call);
+  }
+
+  /**
+   * Method to return how often a call was made since the last reset
+   *
+   * @param call The call
+   * @return The amount of calls
+   */
+  public int countOf(Call call) {
+    return counts[call.ordinal()];
+  }
+
+  /**
+   * Method to return the amount of state changes since the last reset, these are all calls which
+   * change a capability, the blend function, the color, the bound texture or the program
+   *
+   * @return The amount of state changes
+   */
+  public int stateChanges() {
+    return countOf(Call.CAPABILITY) + countOf(Call.DEPTH_MASK) + countOf(Call.BLEND_FUNCTION)
+      + countOf(Call.COLOR) + countOf(Call.BIND_TEXTURE) + countOf(Call.USE_PROGRAM);
+  }
+
+  /**
+   * Method to return the amount of drawn vertices since the last reset, vertices which are drawn
+   * while a display list is compiled are counted once
+   *
+   * @return The amount of vertices
+   */
+  public long vertices() {
+    return vertices;
+  }
+
+  /**
+   * Method to return the amount of uploaded texels since the last reset
+   *
+   * @return The size of the uploads in bytes
+   */
+  public long uploadedBytes() {
+    return uploadedBytes;
+  }
+
+  /**
+   * Method to return the texture which is bound, creating and uploading a texture binds it like
+   * the lwjgl backend does
+   *
+   * @return The id of the bound texture, 0 if none was bound yet
+   */
+  public int boundTexture() {
+    return boundTexture;
+  }
+
+  /**
+   * Method to return all calls since the last reset in their order
+   *
+   * @return The calls
+   */
+  public List<Call> calls() {
+    return Collections.unmodifiableList(calls);
+  }
+
+  /**
+   * Method to forget all recorded calls
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = 0;
+    }
+    calls.clear();
+    vertices = 0;
+    uploadedBytes = 0;
+  }
+
+  /**
+   * The kinds of calls a {@link RecordingBackend} records
+   */
+  public enum Call {
+    CREATE_TEXTURE,
+    UPLOAD,
+    DELETE_TEXTURE,
+    CAPABILITY,
+    DEPTH_MASK,
+    BLEND_FUNCTION,
+    COLOR,
+    BIND_TEXTURE,
+    USE_PROGRAM,
+    DRAW,
+    CREATE_LISTS,
+    BEGIN_LIST,
+    END_LIST,
+    CALL_LIST,
+    DELETE_LISTS,
+    PUSH_MATRIX,
+    POP_MATRIX,
+    TRANSFORM,
+    NORMAL
+  }
+}
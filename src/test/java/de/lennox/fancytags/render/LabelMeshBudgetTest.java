@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.lennox.fancytags.render.font.FontRenderer;
+import de.lennox.fancytags.render.font.GlyphBatch;
+import de.lennox.fancytags.render.gl.Gl;
+import de.lennox.fancytags.render.gl.GlBackend;
+import de.lennox.fancytags.render.gl.RecordingBackend;
+import de.lennox.fancytags.render.gl.RecordingBackend.Call;
+import java.awt.Font;
+import java.io.InputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Budgets of a queued label, its mesh is compiled into two display lists once and only called
+ * afterwards, so a rebuild must stay within one draw call per list
+ */
+public class LabelMeshBudgetTest {
+
+  private static final String LABEL = "Notch";
+  // Every part of a full label is one draw call at most, the badge is drawn by labymod
+  private static final int MAX_DRAW_CALLS = 2;
+  // Every draw call of a list binds its texture directly
+  private static final int MAX_STATE_CHANGES = 2;
+  private GlBackend previousBackend;
+  private RecordingBackend backend;
+  private FontRenderer fontRenderer;
+  private GlyphBatch backgroundBatch;
+  private GlyphBatch textBatch;
+
+  @Before
+  public void setup() throws Exception {
+    previousBackend = Gl.backend();
+    backend = new RecordingBackend();
+    Gl.setBackend(backend);
+    try (InputStream inputStream = getClass().getResourceAsStream("/Inter-Medium.ttf")) {
+      Font font = Font.createFont(Font.TRUETYPE_FONT, inputStream).deriveFont(Font.PLAIN, 72F);
+      fontRenderer = new FontRenderer(font, true, true);
+    }
+    backgroundBatch = new GlyphBatch(0x1000);
+    textBatch = new GlyphBatch(0x1000);
+    LabelCulling.setParts(true, true, true);
+    // Rasterize the glyphs before anything is counted
+    fontRenderer.prefetch(fontRenderer.layoutOf(LABEL));
+    backend.reset();
+  }
+
+  @After
+  public void teardown() {
+    // Restore the parts of the default settings
+    LabelCulling.setParts(true, true, false);
+    Gl.setBackend(previousBackend);
+  }
+
+  @Test
+  public void fullLabelStaysWithinDrawCalls() {
+    LabelMesh mesh = compile(LabelCulling.partsOf(LabelCulling.FULL));
+    assertTrue("draw calls " + backend.countOf(Call.DRAW),
+      backend.countOf(Call.DRAW) <= MAX_DRAW_CALLS);
+    assertEquals(backend.countOf(Call.DRAW), mesh.backgroundDraws() + mesh.textDraws());
+    assertEquals(1, backend.countOf(Call.CREATE_LISTS));
+  }
+
+  @Test
+  public void fullLabelStaysWithinStateChanges() {
+    compile(LabelCulling.partsOf(LabelCulling.FULL));
+    assertTrue("state changes " + backend.stateChanges(),
+      backend.stateChanges() <= MAX_STATE_CHANGES);
+  }
+
+  @Test
+  public void labelVerticesMatchItsParts() {
+    // Every character of the label is one glyph
+    int glyphQuads = LABEL.length() * 4;
+    // The background and three passes of the text, see through, shadow and visible
+    compile(LabelCulling.partsOf(LabelCulling.FULL));
+    assertTrue("vertices " + backend.vertices(), backend.vertices() <= 4 + 3 * glyphQuads);
+    backend.reset();
+    // Only the visible text is left far away
+    compile(LabelCulling.partsOf(LabelCulling.TEXT_ONLY));
+    assertTrue("vertices " + backend.vertices(), backend.vertices() <= glyphQuads);
+  }
+
+  @Test
+  public void disabledPartsAreNotDrawn() {
+    LabelCulling.setParts(false, false, false);
+    LabelMesh mesh = compile(LabelCulling.partsOf(LabelCulling.FULL));
+    assertEquals(0, mesh.backgroundDraws());
+    assertEquals(1, mesh.textDraws());
+  }
+
+  @Test
+  public void unchangedLabelIsNotRebuilt() {
+    int parts = LabelCulling.partsOf(LabelCulling.FULL);
+    LabelMesh mesh = compile(parts);
+    backend.reset();
+    assertTrue(mesh.matches(fontRenderer, LABEL, 0, false, parts, fontRenderer.generation()));
+    assertEquals(0, backend.calls().size());
+  }
+
+  /**
+   * Method to prepare and compile the mesh of the label like the queue does for changed labels
+   *
+   * @param parts The parts of the label
+   * @return The compiled mesh
+   */
+  private LabelMesh compile(int parts) {
+    LabelMesh mesh = new LabelMesh();
+    mesh.prepare(fontRenderer, fontRenderer.layoutOf(LABEL), backgroundBatch, textBatch, LABEL, 0,
+      false, parts);
+    mesh.compile(backgroundBatch, textBatch);
+    return mesh;
+  }
+}
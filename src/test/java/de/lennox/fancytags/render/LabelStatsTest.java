@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render;
+
+import static org.junit.Assert.assertEquals;
+
+import de.lennox.fancytags.render.gl.Gl;
+import de.lennox.fancytags.render.gl.GlBackend;
+import de.lennox.fancytags.render.gl.HeadlessBackend;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Frame counting of the label stats, forge renders the entities in two passes per frame and the
+ * stats of both passes must end up in the same history slot
+ */
+public class LabelStatsTest {
+
+  private static final int FRAMES = 4;
+  private GlBackend previousBackend;
+
+  @Before
+  public void setup() {
+    previousBackend = Gl.backend();
+    Gl.setBackend(new HeadlessBackend());
+    LabelStats.setEnabled(true);
+  }
+
+  @After
+  public void teardown() {
+    LabelStats.setEnabled(false);
+    Gl.setBackend(previousBackend);
+  }
+
+  @Test
+  public void twoPassesAreCountedAsOneFrame() {
+    for (int i = 0; i < FRAMES; i++) {
+      renderPass(0, 3);
+      renderPass(1, 1);
+    }
+    // Finish the last frame
+    LabelQueue.begin(null, 0);
+    LabelQueue.flush(0);
+    assertEquals(4, LabelStats.last(LabelStats.LABELS));
+    assertEquals(4.0D, LabelStats.average(LabelStats.LABELS), 0.0D);
+    assertEquals(4, LabelStats.percentile99(LabelStats.LABELS));
+  }
+
+  private void renderPass(int pass, int labels) {
+    LabelQueue.begin(null, pass);
+    LabelStats.add(LabelStats.LABELS, labels);
+    LabelQueue.flush(pass);
+  }
+}
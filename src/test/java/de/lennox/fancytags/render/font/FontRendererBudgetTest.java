@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.lennox.fancytags.render.GlStateTracker;
+import de.lennox.fancytags.render.gl.Gl;
+import de.lennox.fancytags.render.gl.GlBackend;
+import de.lennox.fancytags.render.gl.RecordingBackend;
+import de.lennox.fancytags.render.gl.RecordingBackend.Call;
+import java.awt.Font;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Budgets of a label which is drawn directly, this is the path of labels outside of the entity
+ * pass, every string has to be one draw call and repeated state must not reach the backend
+ */
+public class FontRendererBudgetTest {
+
+  private static final String LABEL = "Notch";
+  private static final String FORMATTED = "§7[§cAdmin§7] §bNotch";
+  // Blending, texturing, the color and the bound atlas page
+  private static final int MAX_STATE_CHANGES = 4;
+  private GlBackend previousBackend;
+  private RecordingBackend backend;
+  private FontRenderer fontRenderer;
+
+  @Before
+  public void setup() {
+    previousBackend = Gl.backend();
+    backend = new RecordingBackend();
+    Gl.setBackend(backend);
+    Font font = new FontFamily("Inter", "Inter-Medium", true, true).fontOf(Font.PLAIN, 72);
+    fontRenderer = new FontRenderer(font, true, true);
+    // Rasterize the glyphs before anything is counted
+    fontRenderer.layoutOf(LABEL);
+    fontRenderer.layoutOf(FORMATTED);
+    GlStateTracker.invalidate();
+    backend.reset();
+  }
+
+  @After
+  public void teardown() {
+    GlStateTracker.invalidate();
+    Gl.setBackend(previousBackend);
+  }
+
+  @Test
+  public void stringIsOneDrawCall() {
+    fontRenderer.drawString(LABEL, 0, 0, -1);
+    assertEquals(1, backend.countOf(Call.DRAW));
+    backend.reset();
+    // Color codes only change the vertex colors
+    fontRenderer.drawString(FORMATTED, 0, 0, -1);
+    assertEquals(1, backend.countOf(Call.DRAW));
+  }
+
+  @Test
+  public void stringStaysWithinStateChanges() {
+    fontRenderer.drawString(LABEL, 0, 0, -1);
+    assertTrue("state changes " + backend.stateChanges(),
+      backend.stateChanges() <= MAX_STATE_CHANGES);
+    backend.reset();
+    // The state is already set for the next label
+    fontRenderer.drawString(LABEL, 0, 10, -1);
+    assertEquals(0, backend.stateChanges());
+  }
+
+  @Test
+  public void glyphLoadBetweenDrawsBindsThePageAgain() {
+    fontRenderer.drawString(LABEL, 0, 0, -1);
+    backend.reset();
+    // The glyphs of this text are not loaded yet, their upload binds the page in between
+    fontRenderer.drawString("Игрок", 0, 10, -1);
+    List<Call> calls = backend.calls();
+    assertTrue("no glyph was loaded", calls.contains(Call.UPLOAD));
+    assertTrue("the page was not bound after the upload",
+      calls.lastIndexOf(Call.BIND_TEXTURE) > calls.lastIndexOf(Call.UPLOAD));
+    assertEquals(fontRenderer.atlas().basePage().textureId(), backend.boundTexture());
+  }
+
+  @Test
+  public void stringDrawsOneQuadPerGlyph() {
+    fontRenderer.drawString(LABEL, 0, 0, -1);
+    assertEquals(LABEL.length() * 4L, backend.vertices());
+    backend.reset();
+    // The shadow is a second pass of the string
+    fontRenderer.drawStringWithShadow(LABEL, 0, 0, -1);
+    assertEquals(LABEL.length() * 8L, backend.vertices());
+  }
+}
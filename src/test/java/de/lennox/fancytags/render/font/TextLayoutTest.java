@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2021 Lennox
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software,
+ * and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A
+ * PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+ * USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.lennox.fancytags.render.font;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.lennox.fancytags.render.gl.Gl;
+import de.lennox.fancytags.render.gl.GlBackend;
+import de.lennox.fancytags.render.gl.HeadlessBackend;
+import java.awt.Font;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs of formatted layouts, every run has to carry the color and style the vanilla font renderer
+ * would draw its glyphs with
+ */
+public class TextLayoutTest {
+
+  private GlBackend previousBackend;
+  private FontRenderer fontRenderer;
+
+  @Before
+  public void setup() {
+    previousBackend = Gl.backend();
+    Gl.setBackend(new HeadlessBackend());
+    Font font = new FontFamily("Inter", "Inter-Medium", true, true).fontOf(Font.PLAIN, 72);
+    fontRenderer = new FontRenderer(font, true, true);
+  }
+
+  @After
+  public void teardown() {
+    Gl.setBackend(previousBackend);
+  }
+
+  @Test
+  public void resetClearsObfuscation() {
+    TextLayout layout = fontRenderer.layoutOf("§kab§rcd");
+    assertEquals(2, layout.runCount());
+    assertEquals(TextLayout.OBFUSCATED, layout.runStyle(0));
+    assertEquals(0, layout.runStyle(1));
+    assertEquals(2, layout.runStart(1));
+    assertTrue(layout.isObfuscated());
+  }
+
+  @Test
+  public void resetRestoresTheColor() {
+    TextLayout layout = fontRenderer.layoutOf("§c§l§kab§rcd");
+    assertEquals(2, layout.runCount());
+    assertEquals(12, layout.runColor(0));
+    assertEquals(TextLayout.OBFUSCATED | TextLayout.BOLD, layout.runStyle(0));
+    assertEquals(-1, layout.runColor(1));
+    assertEquals(0, layout.runStyle(1));
+  }
+}